@@ -0,0 +1,60 @@
+package org.acme.payments.domain;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+
+/**
+ * Routes to the cheapest processors, weighted among them, while they are healthy and fast enough.
+ * Otherwise the payment is deferred until it has waited longer than {@code maxWait} or the queue
+ * grows beyond {@code maxQueueDepth}; from then on the healthy processor with the lowest
+ * {@code fee + latencyCostPerMs * minResponseTime} is used.
+ */
+public record CostAwareRoutingPolicy(PaymentProcessors paymentProcessors,
+                                     Duration maxResponseTime,
+                                     Duration maxWait,
+                                     long maxQueueDepth,
+                                     double latencyCostPerMs,
+                                     QueueDepthProbe queueDepthProbe) implements RoutingPolicy {
+
+    @Override
+    public RoutingDecision route(HealthCheckSnapshot snapshot, PaymentRequest paymentRequest) {
+        var cheapestFee = snapshot.processors().stream()
+                .mapToDouble(this::fee)
+                .min();
+        if (cheapestFee.isEmpty()) {
+            return RoutingDecision.DEFER;
+        }
+        var preferred = paymentProcessors.pickWeighted(snapshot.processors().stream()
+                .filter(data -> !data.failing())
+                .filter(data -> fee(data) == cheapestFee.getAsDouble())
+                .filter(data -> data.minResponseTime() <= maxResponseTime.toMillis())
+                .toList());
+        if (preferred.isPresent()) {
+            return RoutingDecision.to(preferred.get());
+        }
+        if (!underPressure(paymentRequest)) {
+            return RoutingDecision.DEFER;
+        }
+        return RoutingDecision.to(snapshot.processors().stream()
+                .filter(data -> !data.failing())
+                .min(Comparator.comparingDouble(this::cost))
+                .orElse(null));
+    }
+
+    private boolean underPressure(PaymentRequest paymentRequest) {
+        var receivedAt = paymentRequest.receivedAt();
+        if (receivedAt != null && Duration.between(receivedAt, Instant.now()).compareTo(maxWait) >= 0) {
+            return true;
+        }
+        return queueDepthProbe.depth() >= maxQueueDepth;
+    }
+
+    private double fee(HealthCheckData data) {
+        return paymentProcessors.fee(data.name());
+    }
+
+    private double cost(HealthCheckData data) {
+        return fee(data) + latencyCostPerMs * data.minResponseTime();
+    }
+}
@@ -10,11 +10,11 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
@@ -25,43 +25,46 @@ public class ExternalPaymentHealthCheckChecker implements ExternalPaymentLoadBal
 
     private final static Logger logger = LoggerFactory.getLogger(ExternalPaymentHealthCheckChecker.class);
 
-    private final URI defaultURL;
-    private final URI defaultHealthCheckURL;
-    private final URI fallbackURL;
-    private final URI fallbackHealthCheckURL;
+    private final PaymentProcessors paymentProcessors;
     private final Optional<Duration> healthCheckInterval;
+    private final Duration leaderTTL;
+    private final Duration leaderRenewInterval;
     private final String instanceName;
     private final ExecutorService executorService;
     private final HealthCheckRepository healthCheckRepository;
     private final LeaderResolver leaderResolver;
+    private final RoutingPolicy routingPolicy;
     private final HttpClient httpClient;
     private final Jsonb jsonb;
-    private final AtomicReference<HealthCheckData> activeData = new AtomicReference<>();
+    private final AtomicReference<HealthCheckSnapshot> activeData = new AtomicReference<>();
     private volatile boolean active;
+    private volatile long leaseToken = -1;
 
     @Inject
-    public ExternalPaymentHealthCheckChecker(@ConfigProperty(name = "default.payment.url")
-                                             URI defaultURL,
-                                             @ConfigProperty(name = "fallback.payment.url")
-                                             URI fallbackURL,
+    public ExternalPaymentHealthCheckChecker(PaymentProcessors paymentProcessors,
                                              @ConfigProperty(name = "payment.healthcheck.interval")
                                              Optional<Duration> healthCheckInterval,
+                                             @ConfigProperty(name = "leader.ttl", defaultValue = "3s")
+                                             Duration leaderTTL,
+                                             @ConfigProperty(name = "leader.renew-interval", defaultValue = "1s")
+                                             Duration leaderRenewInterval,
                                              @ConfigProperty(name = "instance.name", defaultValue = "instance-" + "#{java.util.UUID.randomUUID()}")
                                              String instanceName,
                                              @VirtualThreads
                                              ExecutorService executorService,
                                              HealthCheckRepository healthCheckRepository,
                                              LeaderResolver leaderResolver,
+                                             RoutingPolicy routingPolicy,
                                              HttpClient httpClient) {
-        this.defaultURL = defaultURL;
-        this.defaultHealthCheckURL = defaultURL.resolve("/payments/service-health");
+        this.paymentProcessors = paymentProcessors;
         this.healthCheckInterval = healthCheckInterval;
-        this.fallbackURL = fallbackURL;
-        this.fallbackHealthCheckURL = fallbackURL.resolve("/payments/service-health");
+        this.leaderTTL = leaderTTL;
+        this.leaderRenewInterval = leaderRenewInterval;
         this.instanceName = instanceName;
         this.executorService = executorService;
         this.healthCheckRepository = healthCheckRepository;
         this.leaderResolver = leaderResolver;
+        this.routingPolicy = routingPolicy;
         this.httpClient = httpClient;
         this.jsonb = JsonbBuilder.create();
     }
@@ -74,35 +77,51 @@ public class ExternalPaymentHealthCheckChecker implements ExternalPaymentLoadBal
     public void startCheck() {
         if (!this.active) {
             this.active = true;
+            executorService.execute(this::renewLease);
             executorService.execute(this::checkPaymentProcessor);
         }
     }
 
-    private void checkPaymentProcessor() {
-        Duration duration = healthCheckInterval.orElse(Duration.ofSeconds(4));
+    private void renewLease() {
         while (active) {
             try {
-                if (leaderResolver.amILeader(instanceName, duration)) {
-
-                    var defaultHealthCheckData = CompletableFuture
-                            .supplyAsync(() -> this.checkHealth(defaultURL, defaultHealthCheckURL), executorService);
-                    var fallbackHealthCheckData = CompletableFuture
-                            .supplyAsync(() -> this.checkHealth(fallbackURL, fallbackHealthCheckURL), executorService);
-
-                    CompletableFuture.allOf(defaultHealthCheckData, fallbackHealthCheckData).join();
+                leaseToken = leaderResolver.lease(instanceName, leaderTTL).orElse(-1);
+            } catch (Exception e) {
+                // without a confirmed lease this instance must not act as leader
+                leaseToken = -1;
+                logger.warn("Failed to renew the leader lease", e);
+            }
+            try {
+                Thread.sleep(leaderRenewInterval);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
 
-                    accept(HealthCheckData.elect(
-                            defaultHealthCheckData.get(),
-                            fallbackHealthCheckData.get(),
-                            this::getDefaultTieBreaker));
+    private void checkPaymentProcessor() {
+        long probeInterval = healthCheckInterval.orElse(Duration.ofSeconds(4)).toNanos();
+        long probedWithToken = -1;
+        long lastProbe = 0;
+        while (active) {
+            try {
+                long token = leaseToken;
+                if (token >= 0) {
+                    // a new lease probes right away, so a standby taking over publishes fresh data
+                    if (token != probedWithToken || System.nanoTime() - lastProbe >= probeInterval) {
+                        lastProbe = System.nanoTime();
+                        probedWithToken = token;
+                        publish(probe().withFencingToken(token));
+                    }
                 } else {
+                    probedWithToken = -1;
                     accept(healthCheckRepository.getActual());
                 }
             } catch (Exception e) {
-                logger.warn("Failed to check default payment processor", e);
+                logger.warn("Failed to check the payment processors", e);
             } finally {
                 try {
-                    Thread.sleep(duration);
+                    Thread.sleep(leaderRenewInterval);
                 } catch (InterruptedException e) {
                     break;
                 }
@@ -110,53 +129,76 @@ public class ExternalPaymentHealthCheckChecker implements ExternalPaymentLoadBal
         }
     }
 
-    private HealthCheckData checkHealth(URI uri, URI healthCheckURI) {
+    private HealthCheckSnapshot probe() {
+        var healthCheckData = paymentProcessors.all()
+                .stream()
+                .map(processor -> CompletableFuture
+                        .supplyAsync(() -> orPrevious(this.checkHealth(processor), processor), executorService))
+                .toList();
+        return HealthCheckSnapshot.of(healthCheckData
+                .stream()
+                .map(CompletableFuture::join)
+                .toList());
+    }
+
+    private HealthCheckData checkHealth(PaymentProcessor processor) {
         try {
-            var response = httpClient.send(HttpRequest.newBuilder(healthCheckURI)
+            var response = httpClient.send(HttpRequest.newBuilder(processor.healthCheckURL())
                     .header("Content-Type", "application/json")
                     .GET().build(), HttpResponse.BodyHandlers.ofString());
             if (response.statusCode() == 200) {
                 HealthCheckData data = jsonb.fromJson(response.body(), HealthCheckData.class);
-                return data.withURL(translateURL(uri), uri);
+                return data.withURL(processor.name(), processor.url());
             }
             return null;
         } catch (Exception e) {
-            logger.warn("Failed to check the health of {} processor", uri, e);
+            logger.warn("Failed to check the health of {} processor", processor.name(), e);
             return null;
         }
     }
 
-    @Override
-    public HealthCheckData resolve() {
-        startCheck(); // make sure the check is started
-        return Optional
-                .ofNullable(activeData)
-                .map(AtomicReference::get)
-                .orElse(HealthCheckData.of(translateURL(defaultURL), defaultURL, false, 0));
+    // a processor that could not be probed keeps its last known state
+    private HealthCheckData orPrevious(HealthCheckData data, PaymentProcessor processor) {
+        if (data != null) {
+            return data;
+        }
+        return Optional.ofNullable(activeData.get())
+                .flatMap(snapshot -> snapshot.find(processor.name()))
+                .orElseGet(processor::unknownHealth);
     }
 
-    private String translateURL(URI url) {
-        return switch (url) {
-            case URI u when u.equals(defaultURL) -> "default";
-            case URI u when u.equals(fallbackURL) -> "fallback";
-            default -> "none";
-        };
+    @Override
+    public RoutingDecision resolve(PaymentRequest paymentRequest) {
+        startCheck(); // make sure the check is started
+        var snapshot = Optional
+                .ofNullable(activeData.get())
+                .orElseGet(() -> HealthCheckSnapshot.of(paymentProcessors.all()
+                        .stream()
+                        .map(PaymentProcessor::unknownHealth)
+                        .toList()));
+        return routingPolicy.route(snapshot, paymentRequest);
     }
 
-    public void accept(final HealthCheckData data) {
-        this.activeData
-                .updateAndGet(old -> {
-                    try {
-                        return data;
-                    } finally {
-                        healthCheckRepository.update(data);
-                        logger.info("Actual: {}", data);
-                    }
-                });
+    private void publish(final HealthCheckSnapshot data) {
+        // rejected when a newer lease already published: this instance is no longer the leader
+        if (healthCheckRepository.update(data)) {
+            accept(data);
+        }
     }
 
-    private HealthCheckData getDefaultTieBreaker(HealthCheckData data, HealthCheckData data1) {
-        return data.url().equals(defaultURL) ? data : data1;
+    /**
+     * The fenced write in the repository is the only fence: the leader epoch starts over when
+     * Redis loses its data, so comparing against a token remembered locally would reject every
+     * snapshot of the new epoch.
+     */
+    public void accept(final HealthCheckSnapshot data) {
+        if (data == null) {
+            return;
+        }
+        var old = this.activeData.getAndSet(data);
+        if (!Objects.equals(old, data)) {
+            logger.info("Actual: {}", data);
+        }
     }
 
 }
@@ -1,5 +1,5 @@
 package org.acme.payments.domain;
 
 public interface ExternalPaymentLoadBalancer {
-    HealthCheckData resolve();
-}
\ No newline at end of file
+    RoutingDecision resolve(PaymentRequest paymentRequest);
+}
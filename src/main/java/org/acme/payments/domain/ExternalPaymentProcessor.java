@@ -1,55 +1,67 @@
 package org.acme.payments.domain;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @ApplicationScoped
 public class ExternalPaymentProcessor {
 
-    private final HttpClient httpClient;
+    private final PaymentProcessorTransport transport;
     private final ExternalPaymentLoadBalancer loadBalancer;
+    private final Executor afterDeferBackoff;
+    private final Map<URI, URI> paymentsURLs = new ConcurrentHashMap<>();
 
     public ExternalPaymentProcessor(
-            HttpClient httpClient,
-            ExternalPaymentLoadBalancer loadBalancer) {
-        this.httpClient = httpClient;
+            PaymentProcessorTransport transport,
+            ExternalPaymentLoadBalancer loadBalancer,
+            @ConfigProperty(name = "routing.defer-backoff", defaultValue = "20ms")
+            Duration deferBackoff) {
+        this.transport = transport;
         this.loadBalancer = loadBalancer;
+        this.afterDeferBackoff = CompletableFuture.delayedExecutor(deferBackoff.toMillis(), TimeUnit.MILLISECONDS);
     }
 
-    public Optional<ProcessedPayment> process(PaymentRequest paymentRequest) {
-        ProcessedPayment payment = null;
+    /**
+     * Sends the payment to the processor chosen by the load balancer. No thread waits for the
+     * processor: the returned stage completes with the outcome once the processor answered.
+     */
+    public CompletionStage<ProcessingOutcome> process(PaymentRequest paymentRequest) {
         try {
-            HealthCheckData data = Objects.requireNonNull(loadBalancer.resolve(), "Cannot resolve the URL target");
-            payment = data.buildProcessedPayment(paymentRequest);
-            var request = createRequest(data.url().resolve("/payments"), payment);
-            var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
-            if (response.statusCode() == 200) {
-                    return Optional.of(payment);
+            RoutingDecision decision = Objects.requireNonNull(loadBalancer.resolve(paymentRequest), "Cannot resolve the URL target");
+            if (decision.deferred()) {
+                // completing after the backoff keeps the workers from spinning on deferred payments
+                return CompletableFuture.supplyAsync(() -> ProcessingOutcome.DEFERRED, afterDeferBackoff);
             }
-            return Optional.empty();
+            HealthCheckData data = decision.target();
+            ProcessedPayment payment = data.buildProcessedPayment(paymentRequest);
+            var target = paymentsURLs.computeIfAbsent(data.url(), url -> url.resolve("/payments"));
+            return transport.post(target, encode(payment))
+                    .handle((statusCode, error) -> error == null && statusCode == 200
+                            ? ProcessingOutcome.processed(payment)
+                            : ProcessingOutcome.FAILED);
         } catch (Exception e) {
-            return Optional.empty();
+            return CompletableFuture.completedFuture(ProcessingOutcome.FAILED);
         }
     }
 
-    private HttpRequest createRequest(URI defaultURL, ProcessedPayment payment) {
-        return HttpRequest.newBuilder(defaultURL.resolve("/payments"))
-                .header("Content-Type", "application/json")
-                .timeout(Duration.ofSeconds(5))
-                .POST(HttpRequest.BodyPublishers.ofString("""
-                        {
-                            "correlationId": "%s",
-                            "amount": %s,
-                            "requestedAt": "%s"
-                        }
-                        """.formatted(payment.correlationId(), payment.amount(), payment.requestedAt())))
-                .build();
+    private byte[] encode(ProcessedPayment payment) {
+        return new StringBuilder(128)
+                .append("{\"correlationId\":\"").append(payment.correlationId())
+                .append("\",\"amount\":").append(payment.amount().toPlainString())
+                .append(",\"requestedAt\":\"").append(payment.requestedAt())
+                .append("\"}")
+                .toString()
+                .getBytes(StandardCharsets.UTF_8);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package org.acme.payments.domain;
+
+import java.util.function.Consumer;
+
+/**
+ * Reaches every running instance, so a summary or a purge also covers payments still held in
+ * memory by other instances: write-behind buffers or unpublished counters.
+ */
+public interface FlushBarrier {
+
+    enum Request {
+        // write every pending payment
+        FLUSH,
+        // drop every pending payment
+        DISCARD
+    }
+
+    /**
+     * Registers the handler run on this instance for the requests of any instance.
+     */
+    void listen(Consumer<Request> handler);
+
+    /**
+     * Asks every listening instance, this one included, to handle {@code request} and waits until
+     * all of them confirmed it, or the barrier timeout elapsed.
+     */
+    void await(Request request);
+
+    void close();
+}
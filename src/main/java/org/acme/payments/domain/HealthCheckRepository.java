@@ -2,8 +2,12 @@ package org.acme.payments.domain;
 
 public interface HealthCheckRepository {
 
-    void update(HealthCheckData healthCheckData);
+    /**
+     * Stores the snapshot unless one published under a newer lease is already stored.
+     * Returns whether the snapshot was stored.
+     */
+    boolean update(HealthCheckSnapshot snapshot);
 
-    HealthCheckData getActual();
+    HealthCheckSnapshot getActual();
 
 }
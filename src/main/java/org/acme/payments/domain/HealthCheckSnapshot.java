@@ -0,0 +1,30 @@
+package org.acme.payments.domain;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Latest known health of every payment processor, as published by the health-check leader.
+ * The fencing token is the one of the leader lease the snapshot was taken under.
+ */
+@RegisterForReflection
+public record HealthCheckSnapshot(List<HealthCheckData> processors, long fencingToken) {
+
+    public HealthCheckSnapshot {
+        processors = List.copyOf(processors);
+    }
+
+    public static HealthCheckSnapshot of(List<HealthCheckData> processors) {
+        return new HealthCheckSnapshot(processors, 0);
+    }
+
+    public HealthCheckSnapshot withFencingToken(long fencingToken) {
+        return new HealthCheckSnapshot(processors, fencingToken);
+    }
+
+    public Optional<HealthCheckData> find(String name) {
+        return processors.stream().filter(data -> data.name().equals(name)).findFirst();
+    }
+}
@@ -0,0 +1,16 @@
+package org.acme.payments.domain;
+
+/**
+ * Routes to the healthy processor with the lowest response time, preferring the first
+ * processor of the snapshot on ties. Never defers.
+ */
+public record LatencyRoutingPolicy() implements RoutingPolicy {
+
+    @Override
+    public RoutingDecision route(HealthCheckSnapshot snapshot, PaymentRequest paymentRequest) {
+        return RoutingDecision.to(snapshot.processors()
+                .stream()
+                .reduce((a, b) -> HealthCheckData.elect(a, b, (first, second) -> first))
+                .orElse(null));
+    }
+}
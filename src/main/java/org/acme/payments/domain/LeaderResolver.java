@@ -1,7 +1,24 @@
 package org.acme.payments.domain;
 
 import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
 
 public interface LeaderResolver {
-    boolean amILeader(String myId, Duration ttl);
-}
\ No newline at end of file
+
+    /**
+     * Acquires the leader lease for {@code myId}, or extends it when {@code myId} already holds it.
+     * Returns the fencing token of the lease while {@code myId} is the leader; a new, higher token
+     * is issued every time the lease changes hands.
+     */
+    OptionalLong lease(String myId, Duration ttl);
+
+    /**
+     * Returns the current lease holder, without taking or extending the lease.
+     */
+    Optional<String> currentLeader();
+
+    default boolean isLeader(String myId) {
+        return currentLeader().filter(myId::equals).isPresent();
+    }
+}
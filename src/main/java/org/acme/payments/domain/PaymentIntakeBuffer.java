@@ -0,0 +1,62 @@
+package org.acme.payments.domain;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Payments accepted by the HTTP front end and not yet forwarded: a {@link PaymentRingBuffer}
+ * backed by a bounded overflow queue for what the ring rejects (full, or not representable as
+ * primitives). Offering never blocks; draining must only be done by a single consumer thread.
+ * <p>
+ * Ring entries are always drained before overflowed ones: under sustained overload the ring holds
+ * the oldest accepted payments, so they must not starve behind newer overflowed ones.
+ */
+public final class PaymentIntakeBuffer {
+
+    private final PaymentRingBuffer ring;
+    private final BlockingQueue<PaymentRequest> overflow;
+
+    public PaymentIntakeBuffer(PaymentRingBuffer ring, int overflowCapacity) {
+        this.ring = ring;
+        this.overflow = new ArrayBlockingQueue<>(overflowCapacity);
+    }
+
+    /**
+     * Returns {@code false} when both the ring and the overflow queue are full.
+     */
+    public boolean offer(PaymentRequest paymentRequest) {
+        return ring.offer(paymentRequest) || overflow.offer(paymentRequest);
+    }
+
+    /**
+     * Drains up to {@code maxBatch} entries, from the ring first and then from the overflow queue.
+     * Only waits, with the ring's {@link WaitStrategy}, while both are empty; gives up, returning 0,
+     * once {@code keepWaiting} is false.
+     */
+    public int drainWaiting(int maxBatch,
+                            PaymentRingBuffer.PaymentConsumer ringConsumer,
+                            Consumer<PaymentRequest> overflowConsumer,
+                            BooleanSupplier keepWaiting) {
+        int idleCount = 0;
+        while (keepWaiting.getAsBoolean()) {
+            int drained = drain(maxBatch, ringConsumer, overflowConsumer);
+            if (drained > 0) {
+                return drained;
+            }
+            ring.waitStrategy().idle(idleCount++);
+        }
+        return 0;
+    }
+
+    private int drain(int maxBatch, PaymentRingBuffer.PaymentConsumer ringConsumer, Consumer<PaymentRequest> overflowConsumer) {
+        int drained = ring.drain(maxBatch, ringConsumer);
+        PaymentRequest overflowed;
+        while (drained < maxBatch && (overflowed = overflow.poll()) != null) {
+            overflowConsumer.accept(overflowed);
+            drained++;
+        }
+        return drained;
+    }
+}
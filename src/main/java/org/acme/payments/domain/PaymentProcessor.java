@@ -0,0 +1,14 @@
+package org.acme.payments.domain;
+
+import java.net.URI;
+
+public record PaymentProcessor(String name, URI url, URI healthCheckURL, int weight, double fee) {
+
+    public static PaymentProcessor of(String name, URI url, int weight, double fee) {
+        return new PaymentProcessor(name, url, url.resolve("/payments/service-health"), weight, fee);
+    }
+
+    public HealthCheckData unknownHealth() {
+        return HealthCheckData.of(name, url, false, 0);
+    }
+}
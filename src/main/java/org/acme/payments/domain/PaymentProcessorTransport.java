@@ -0,0 +1,15 @@
+package org.acme.payments.domain;
+
+import java.net.URI;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Outbound HTTP transport used to reach the payment processors.
+ * Both operations complete with the HTTP status code of the response.
+ */
+public interface PaymentProcessorTransport {
+
+    CompletionStage<Integer> post(URI target, byte[] jsonBody);
+
+    CompletionStage<Integer> get(URI target);
+}
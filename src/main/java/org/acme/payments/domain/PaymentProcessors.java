@@ -0,0 +1,70 @@
+package org.acme.payments.domain;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The configured payment processors, ordered by fee and then by name.
+ */
+@ApplicationScoped
+public class PaymentProcessors {
+
+    private final List<PaymentProcessor> processors;
+    private final Map<String, PaymentProcessor> processorsByName;
+
+    public PaymentProcessors(PaymentProcessorsConfig config) {
+        this.processors = config.processors()
+                .entrySet()
+                .stream()
+                .map(entry -> PaymentProcessor.of(
+                        entry.getKey(),
+                        entry.getValue().url(),
+                        entry.getValue().weight(),
+                        entry.getValue().fee()))
+                .sorted(Comparator.comparingDouble(PaymentProcessor::fee).thenComparing(PaymentProcessor::name))
+                .toList();
+        this.processorsByName = processors.stream()
+                .collect(Collectors.toUnmodifiableMap(PaymentProcessor::name, Function.identity()));
+    }
+
+    public List<PaymentProcessor> all() {
+        return processors;
+    }
+
+    public Optional<PaymentProcessor> find(String name) {
+        return Optional.ofNullable(processorsByName.get(name));
+    }
+
+    public int weight(String name) {
+        return find(name).map(PaymentProcessor::weight).orElse(0);
+    }
+
+    public double fee(String name) {
+        return find(name).map(PaymentProcessor::fee).orElse(0d);
+    }
+
+    /**
+     * Picks one of the candidates at random, proportionally to its configured weight.
+     */
+    public Optional<HealthCheckData> pickWeighted(List<HealthCheckData> candidates) {
+        int totalWeight = candidates.stream().mapToInt(data -> weight(data.name())).sum();
+        if (totalWeight <= 0) {
+            return candidates.stream().findFirst();
+        }
+        int point = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (HealthCheckData candidate : candidates) {
+            point -= weight(candidate.name());
+            if (point < 0) {
+                return Optional.of(candidate);
+            }
+        }
+        return candidates.stream().findFirst();
+    }
+}
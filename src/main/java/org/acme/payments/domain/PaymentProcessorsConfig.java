@@ -0,0 +1,29 @@
+package org.acme.payments.domain;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithParentName;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Payment processors keyed by name, e.g. {@code payment.processors.default.url=...}.
+ */
+@ConfigMapping(prefix = "payment.processors")
+public interface PaymentProcessorsConfig {
+
+    @WithParentName
+    Map<String, Processor> processors();
+
+    interface Processor {
+
+        URI url();
+
+        @WithDefault("1")
+        int weight();
+
+        @WithDefault("0")
+        double fee();
+    }
+}
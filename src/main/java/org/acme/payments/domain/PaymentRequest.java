@@ -3,6 +3,16 @@ package org.acme.payments.domain;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 @RegisterForReflection
-public record PaymentRequest(String correlationId, BigDecimal amount) { }
+public record PaymentRequest(String correlationId, BigDecimal amount, Instant receivedAt) {
+
+    public PaymentRequest(String correlationId, BigDecimal amount) {
+        this(correlationId, amount, null);
+    }
+
+    public PaymentRequest withReceivedAt(Instant receivedAt) {
+        return new PaymentRequest(correlationId, amount, receivedAt);
+    }
+}
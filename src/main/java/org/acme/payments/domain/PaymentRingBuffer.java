@@ -0,0 +1,180 @@
+package org.acme.payments.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bounded, lock-free multi-producer/single-consumer ring buffer of payment requests.
+ * <p>
+ * Entries are stored as primitive fields in preallocated arrays (the correlation id as the two
+ * halves of its UUID, the amount in cents and the receive time in epoch millis), so offering a
+ * payment neither locks nor allocates a node. Every slot has a sequence number: a producer claims
+ * a position with a CAS on the tail and publishes the slot by advancing its sequence; the consumer
+ * only reads slots whose sequence says they were published, and hands them back the same way.
+ */
+public final class PaymentRingBuffer {
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    @FunctionalInterface
+    public interface PaymentConsumer {
+        void accept(long correlationIdMsb, long correlationIdLsb, long amountInCents, long receivedAtMillis);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final long[] correlationIdMsb;
+    private final long[] correlationIdLsb;
+    private final long[] amountInCents;
+    private final long[] receivedAtMillis;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final WaitStrategy waitStrategy;
+    // only touched by the consumer thread
+    private long head;
+
+    public PaymentRingBuffer(int requestedCapacity, WaitStrategy waitStrategy) {
+        this.capacity = Integer.highestOneBit(Math.max(1, requestedCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.correlationIdMsb = new long[capacity];
+        this.correlationIdLsb = new long[capacity];
+        this.amountInCents = new long[capacity];
+        this.receivedAtMillis = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Returns {@code false} when the buffer is full or the request cannot be stored as primitives
+     * (a correlation id that is not a lowercase UUID, or an amount with more than two decimal places).
+     */
+    public boolean offer(PaymentRequest paymentRequest) {
+        String correlationId = paymentRequest.correlationId();
+        if (!isUUID(correlationId) || paymentRequest.amount() == null) {
+            return false;
+        }
+        long msb = parseHex(correlationId, 0, 8) << 32 | parseHex(correlationId, 9, 13) << 16 | parseHex(correlationId, 14, 18);
+        long lsb = parseHex(correlationId, 19, 23) << 48 | parseHex(correlationId, 24, 36);
+        long cents;
+        try {
+            cents = paymentRequest.amount().movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        long receivedAt = paymentRequest.receivedAt() == null ? NO_TIMESTAMP : paymentRequest.receivedAt().toEpochMilli();
+
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) (position & mask);
+            long available = sequences.getAcquire(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                return false; // full
+            } else {
+                Thread.onSpinWait(); // another producer claimed this position first
+            }
+        }
+        correlationIdMsb[index] = msb;
+        correlationIdLsb[index] = lsb;
+        amountInCents[index] = cents;
+        receivedAtMillis[index] = receivedAt;
+        sequences.setRelease(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Hands up to {@code maxBatch} published entries to the consumer. Must only be called from
+     * the single consumer thread.
+     */
+    public int drain(int maxBatch, PaymentConsumer consumer) {
+        int drained = 0;
+        while (drained < maxBatch) {
+            int index = (int) (head & mask);
+            if (sequences.getAcquire(index) != head + 1) {
+                break;
+            }
+            consumer.accept(correlationIdMsb[index], correlationIdLsb[index], amountInCents[index], receivedAtMillis[index]);
+            sequences.setRelease(index, head + capacity);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Like {@link #drain(int, PaymentConsumer)}, but waits with the configured {@link WaitStrategy}
+     * until at least one entry is available; gives up, returning 0, once {@code keepWaiting} is false.
+     */
+    public int drainWaiting(int maxBatch, PaymentConsumer consumer, BooleanSupplier keepWaiting) {
+        int idleCount = 0;
+        while (keepWaiting.getAsBoolean()) {
+            int drained = drain(maxBatch, consumer);
+            if (drained > 0) {
+                return drained;
+            }
+            waitStrategy.idle(idleCount++);
+        }
+        return 0;
+    }
+
+    public static String amount(long amountInCents) {
+        return BigDecimal.valueOf(amountInCents, 2).toPlainString();
+    }
+
+    public static Instant receivedAt(long receivedAtMillis) {
+        return receivedAtMillis == NO_TIMESTAMP ? null : Instant.ofEpochMilli(receivedAtMillis);
+    }
+
+    // canonical, lowercase 8-4-4-4-12 form only: it is the form UUID.toString() gives back, so the
+    // correlation id forwarded later is exactly the one received
+    private static boolean isUUID(String value) {
+        if (value == null || value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23 ? c == '-' : hexDigit(c) >= 0;
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String value, int from, int to) {
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            result = result << 4 | hexDigit(value.charAt(i));
+        }
+        return result;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,89 @@
+package org.acme.payments.domain;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.virtual.threads.VirtualThreads;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Background job that keeps the raw payments bounded: on the leader instance, payments older
+ * than {@code payments.compaction.retention} are periodically rolled up into per-minute aggregates.
+ * The lease itself is left to the health checker: the compactor only reads who holds it.
+ * A summary counts a whole aggregate when its minute starts inside the window, so over compacted
+ * data only windows starting and ending on whole minutes are exact.
+ */
+@ApplicationScoped
+public class PaymentsCompactor {
+
+    private final static Logger logger = LoggerFactory.getLogger(PaymentsCompactor.class);
+
+    private final Optional<Duration> retention;
+    private final Duration interval;
+    private final String instanceName;
+    private final ExecutorService executorService;
+    private final PaymentsRepository paymentsRepository;
+    private final LeaderResolver leaderResolver;
+    private volatile boolean active;
+
+    @Inject
+    public PaymentsCompactor(@ConfigProperty(name = "payments.compaction.retention")
+                             Optional<Duration> retention,
+                             @ConfigProperty(name = "payments.compaction.interval", defaultValue = "30s")
+                             Duration interval,
+                             @ConfigProperty(name = "instance.name", defaultValue = "instance-" + "#{java.util.UUID.randomUUID()}")
+                             String instanceName,
+                             @VirtualThreads
+                             ExecutorService executorService,
+                             PaymentsRepository paymentsRepository,
+                             LeaderResolver leaderResolver) {
+        this.retention = retention;
+        this.interval = interval;
+        this.instanceName = instanceName;
+        this.executorService = executorService;
+        this.paymentsRepository = paymentsRepository;
+        this.leaderResolver = leaderResolver;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (retention.isPresent() && !active) {
+            active = true;
+            executorService.execute(this::compactPayments);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        this.active = false;
+    }
+
+    private void compactPayments() {
+        while (active) {
+            try {
+                Thread.sleep(interval);
+                if (leaderResolver.isLeader(instanceName)) {
+                    // only whole minutes are rolled up
+                    var before = Instant.now().minus(retention.get()).truncatedTo(ChronoUnit.MINUTES);
+                    long compacted = paymentsRepository.compact(before);
+                    if (compacted > 0) {
+                        logger.info("Compacted {} payments requested before {}", compacted, before);
+                    }
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                logger.warn("Failed to compact payments", e);
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.acme.payments.domain;
 
 import java.time.Instant;
+import java.util.List;
 
 public interface PaymentsRepository {
 
@@ -9,4 +10,29 @@ public interface PaymentsRepository {
     PaymentsSummary summary(Instant from, Instant to);
 
     ProcessedPayment save(ProcessedPayment payment);
+
+    default void saveAll(List<ProcessedPayment> payments) {
+        payments.forEach(this::save);
+    }
+
+    /**
+     * Reserves room for one more payment before it is accepted, so it can be recorded once a
+     * processor charged it. Returns {@code false} when the repository is full; repositories
+     * without a fixed capacity always accept.
+     */
+    default boolean reserve() {
+        return true;
+    }
+
+    /**
+     * Gives back a reservation for a payment that was not accepted after all.
+     */
+    default void release() {
+    }
+
+    /**
+     * Rolls the raw payments requested before {@code before} up into per-minute,
+     * per-processor aggregates and returns how many raw payments were compacted.
+     */
+    long compact(Instant before);
 }
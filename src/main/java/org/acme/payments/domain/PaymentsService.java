@@ -3,6 +3,7 @@ package org.acme.payments.domain;
 import jakarta.enterprise.context.ApplicationScoped;
 
 import java.time.Instant;
+import java.util.concurrent.RejectedExecutionException;
 
 @ApplicationScoped
 public class PaymentsService {
@@ -15,8 +16,20 @@ public class PaymentsService {
         this.paymentsRepository = paymentsRepository;
     }
 
+    /**
+     * Throws {@link RejectedExecutionException} when the payment cannot be taken now: refused at
+     * intake, rather than charged by a processor and then missing from the summaries.
+     */
     public void accept(PaymentRequest paymentRequest) {
-        paymentsProcessor.queue(paymentRequest);
+        if (!paymentsRepository.reserve()) {
+            throw new RejectedExecutionException("The payments repository is full");
+        }
+        try {
+            paymentsProcessor.queue(paymentRequest.withReceivedAt(Instant.now()));
+        } catch (RuntimeException e) {
+            paymentsRepository.release();
+            throw e;
+        }
     }
 
     public void purge() {
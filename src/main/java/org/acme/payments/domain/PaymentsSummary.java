@@ -1,36 +1,62 @@
 package org.acme.payments.domain;
 
 import io.quarkus.runtime.annotations.RegisterForReflection;
-import jakarta.json.bind.annotation.JsonbProperty;
+import jakarta.json.bind.annotation.JsonbTypeSerializer;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Optional;
+import java.util.TreeMap;
 
+/**
+ * Summary per processor. It is serialized as a JSON object keyed by processor name, where
+ * {@code default} and {@code fallback} are always present and come first.
+ */
 @RegisterForReflection
-public record PaymentsSummary(
-        @JsonbProperty("default") PaymentSummary defaultPaymentSummary,
-        @JsonbProperty("fallback") PaymentSummary fallbackPaymentSummary) {
+@JsonbTypeSerializer(PaymentsSummarySerializer.class)
+public record PaymentsSummary(Map<String, PaymentSummary> processors) {
 
-    public static final PaymentsSummary ZERO = new PaymentsSummary(PaymentSummary.ZERO, PaymentSummary.ZERO);
+    public static final String DEFAULT = "default";
+    public static final String FALLBACK = "fallback";
+
+    public static final PaymentsSummary ZERO = new PaymentsSummary(Map.of());
 
     public static PaymentsSummary of(Map<String, PaymentSummary> summary) {
-        return of(summary.get("default"), summary.get("fallback"));
+        return new PaymentsSummary(summary);
     }
 
     public static PaymentsSummary of(PaymentSummary defaultPaymentSummary, PaymentSummary fallbackPaymentSummary) {
-        return new PaymentsSummary(defaultPaymentSummary, fallbackPaymentSummary);
+        var summary = new LinkedHashMap<String, PaymentSummary>();
+        summary.put(DEFAULT, defaultPaymentSummary);
+        summary.put(FALLBACK, fallbackPaymentSummary);
+        return new PaymentsSummary(summary);
     }
 
     public PaymentsSummary {
-        defaultPaymentSummary = Optional.ofNullable(defaultPaymentSummary).orElse(PaymentSummary.ZERO);
-        fallbackPaymentSummary = Optional.ofNullable(fallbackPaymentSummary).orElse(PaymentSummary.ZERO);
+        var ordered = new LinkedHashMap<String, PaymentSummary>();
+        ordered.put(DEFAULT, PaymentSummary.ZERO);
+        ordered.put(FALLBACK, PaymentSummary.ZERO);
+        new TreeMap<>(processors).forEach((name, summary) ->
+                ordered.put(name, summary == null ? PaymentSummary.ZERO : summary));
+        processors = Collections.unmodifiableMap(ordered);
+    }
+
+    public PaymentSummary get(String processor) {
+        return processors.getOrDefault(processor, PaymentSummary.ZERO);
+    }
+
+    public PaymentSummary defaultPaymentSummary() {
+        return get(DEFAULT);
+    }
+
+    public PaymentSummary fallbackPaymentSummary() {
+        return get(FALLBACK);
     }
 
     public PaymentsSummary add(PaymentsSummary paymentsSummary) {
-        return new PaymentsSummary(
-                this.defaultPaymentSummary.add(paymentsSummary.defaultPaymentSummary),
-                this.fallbackPaymentSummary.add(paymentsSummary.fallbackPaymentSummary)
-        );
+        var summary = new LinkedHashMap<>(this.processors);
+        paymentsSummary.processors().forEach((name, other) -> summary.merge(name, other, PaymentSummary::add));
+        return new PaymentsSummary(summary);
     }
 
 }
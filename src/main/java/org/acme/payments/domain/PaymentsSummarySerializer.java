@@ -0,0 +1,17 @@
+package org.acme.payments.domain;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.json.bind.serializer.JsonbSerializer;
+import jakarta.json.bind.serializer.SerializationContext;
+import jakarta.json.stream.JsonGenerator;
+
+@RegisterForReflection
+public class PaymentsSummarySerializer implements JsonbSerializer<PaymentsSummary> {
+
+    @Override
+    public void serialize(PaymentsSummary summary, JsonGenerator generator, SerializationContext context) {
+        generator.writeStartObject();
+        summary.processors().forEach((name, paymentSummary) -> context.serialize(name, paymentSummary, generator));
+        generator.writeEnd();
+    }
+}
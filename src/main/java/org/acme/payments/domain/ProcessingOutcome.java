@@ -0,0 +1,19 @@
+package org.acme.payments.domain;
+
+/**
+ * Outcome of sending a payment to a processor: either the processed payment, a failure, or a
+ * deferral, meaning the {@link RoutingPolicy} chose to keep the payment queued for now.
+ */
+public record ProcessingOutcome(ProcessedPayment payment, boolean deferred) {
+
+    public static final ProcessingOutcome FAILED = new ProcessingOutcome(null, false);
+    public static final ProcessingOutcome DEFERRED = new ProcessingOutcome(null, true);
+
+    public static ProcessingOutcome processed(ProcessedPayment payment) {
+        return new ProcessingOutcome(payment, false);
+    }
+
+    public boolean succeeded() {
+        return payment != null;
+    }
+}
@@ -0,0 +1,5 @@
+package org.acme.payments.domain;
+
+public interface QueueDepthProbe {
+    long depth();
+}
@@ -0,0 +1,18 @@
+package org.acme.payments.domain;
+
+/**
+ * Outcome of a {@link RoutingPolicy}: either the processor to send the payment to,
+ * or a deferral, meaning the payment should stay queued for now.
+ */
+public record RoutingDecision(HealthCheckData target) {
+
+    public static final RoutingDecision DEFER = new RoutingDecision(null);
+
+    public static RoutingDecision to(HealthCheckData target) {
+        return target == null ? DEFER : new RoutingDecision(target);
+    }
+
+    public boolean deferred() {
+        return target == null;
+    }
+}
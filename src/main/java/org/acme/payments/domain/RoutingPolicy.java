@@ -0,0 +1,5 @@
+package org.acme.payments.domain;
+
+public interface RoutingPolicy {
+    RoutingDecision route(HealthCheckSnapshot snapshot, PaymentRequest paymentRequest);
+}
@@ -0,0 +1,47 @@
+package org.acme.payments.domain;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a consumer waits while there is nothing to consume. {@code idleCount} is the number of
+ * consecutive empty polls so far and is reset as soon as something is consumed.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    void idle(int idleCount);
+
+    static WaitStrategy busySpin() {
+        return idleCount -> Thread.onSpinWait();
+    }
+
+    static WaitStrategy yielding() {
+        return idleCount -> Thread.yield();
+    }
+
+    /**
+     * Spins, then yields, then parks for {@code parkTime} between polls.
+     */
+    static WaitStrategy parking(Duration parkTime) {
+        long parkNanos = parkTime.toNanos();
+        return idleCount -> {
+            if (idleCount < 100) {
+                Thread.onSpinWait();
+            } else if (idleCount < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        };
+    }
+
+    static WaitStrategy of(String name, Duration parkTime) {
+        return switch (name) {
+            case "spin" -> busySpin();
+            case "yield" -> yielding();
+            case "park" -> parking(parkTime);
+            default -> throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package org.acme.payments.domain;
+
+/**
+ * Spreads payments across the healthy processors proportionally to their configured weights.
+ * When every processor is failing it falls back to {@link LatencyRoutingPolicy}.
+ */
+public record WeightedRoutingPolicy(PaymentProcessors paymentProcessors) implements RoutingPolicy {
+
+    @Override
+    public RoutingDecision route(HealthCheckSnapshot snapshot, PaymentRequest paymentRequest) {
+        return paymentProcessors.pickWeighted(snapshot.processors()
+                        .stream()
+                        .filter(data -> !data.failing())
+                        .toList())
+                .map(RoutingDecision::to)
+                .orElseGet(() -> new LatencyRoutingPolicy().route(snapshot, paymentRequest));
+    }
+}
@@ -0,0 +1,171 @@
+package org.acme.payments.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers processed payments and writes them to the delegate in batches, once {@code batchSize}
+ * payments are pending or every {@code flushInterval}. Summaries and purges first go through the
+ * {@link FlushBarrier}, so they see every payment saved before them on any instance, and no
+ * instance writes payments buffered before a purge after it.
+ */
+public class WriteBehindPaymentsRepository implements PaymentsRepository {
+
+    private final static Logger logger = LoggerFactory.getLogger(WriteBehindPaymentsRepository.class);
+
+    private final PaymentsRepository delegate;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final FlushBarrier flushBarrier;
+    private final ExecutorService executorService;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private List<ProcessedPayment> buffer;
+    private volatile boolean running = false;
+
+    public WriteBehindPaymentsRepository(PaymentsRepository delegate,
+                                         int batchSize,
+                                         Duration flushInterval,
+                                         FlushBarrier flushBarrier,
+                                         ExecutorService executorService) {
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.flushBarrier = flushBarrier;
+        this.executorService = executorService;
+        this.buffer = new ArrayList<>(batchSize);
+    }
+
+    public WriteBehindPaymentsRepository start() {
+        if (running) {
+            return this;
+        }
+        running = true;
+        flushBarrier.listen(this::onFlushRequest);
+        executorService.execute(() -> {
+            while (running) {
+                try {
+                    Thread.sleep(flushInterval);
+                    flush();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to flush processed payments", e);
+                }
+            }
+        });
+        return this;
+    }
+
+    public void shutdown() {
+        this.running = false;
+        flushBarrier.close();
+        flush();
+    }
+
+    @Override
+    public ProcessedPayment save(ProcessedPayment payment) {
+        boolean full;
+        synchronized (this) {
+            buffer.add(payment);
+            // a failed flush puts its batch back, so the buffer may already hold more than a batch
+            full = buffer.size() >= batchSize;
+        }
+        if (full) {
+            executorService.execute(this::flushQuietly);
+        }
+        return payment;
+    }
+
+    @Override
+    public void saveAll(List<ProcessedPayment> payments) {
+        payments.forEach(this::save);
+    }
+
+    @Override
+    public PaymentsSummary summary(Instant from, Instant to) {
+        // this instance's own buffer does not depend on its subscription being up
+        flush();
+        flushBarrier.await(FlushBarrier.Request.FLUSH);
+        return delegate.summary(from, to);
+    }
+
+    @Override
+    public void purge() {
+        // pending payments would be purged right after being written anyway
+        drain();
+        flushBarrier.await(FlushBarrier.Request.DISCARD);
+        flushLock.lock();
+        try {
+            drain();
+            delegate.purge();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public long compact(Instant before) {
+        return delegate.compact(before);
+    }
+
+    /**
+     * Writes every pending payment. The lock makes a caller wait for a flush already in progress,
+     * so when this method returns all payments saved before the call are in the delegate.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            var batch = drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                delegate.saveAll(batch);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    buffer.addAll(0, batch);
+                }
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void onFlushRequest(FlushBarrier.Request request) {
+        switch (request) {
+            case FLUSH -> flush();
+            case DISCARD -> {
+                // waits for a flush in progress, so its batch is written before the purge
+                flushLock.lock();
+                try {
+                    drain();
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to flush processed payments", e);
+        }
+    }
+
+    private synchronized List<ProcessedPayment> drain() {
+        var batch = buffer;
+        buffer = new ArrayList<>(batchSize);
+        return batch;
+    }
+}
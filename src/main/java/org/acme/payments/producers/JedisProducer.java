@@ -4,24 +4,42 @@ import io.quarkus.runtime.annotations.RegisterForReflection;
 import io.quarkus.virtual.threads.VirtualThreads;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
 import jakarta.enterprise.inject.Produces;
 import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
 import jakarta.json.bind.Jsonb;
 import org.acme.payments.domain.HealthCheckRepository;
 import org.acme.payments.domain.LeaderResolver;
+import org.acme.payments.domain.PaymentIntakeBuffer;
+import org.acme.payments.domain.PaymentRingBuffer;
 import org.acme.payments.domain.PaymentsProcessor;
 import org.acme.payments.domain.PaymentsRepository;
+import org.acme.payments.domain.QueueDepthProbe;
+import org.acme.payments.domain.WaitStrategy;
+import org.acme.payments.domain.WriteBehindPaymentsRepository;
 import org.acme.payments.domain.ExternalPaymentProcessor;
+import org.acme.payments.producers.jedis.JedisCounterPaymentsRepository;
+import org.acme.payments.producers.jedis.JedisFlushBarrier;
 import org.acme.payments.producers.jedis.JedisHealthCheckRepository;
 import org.acme.payments.producers.jedis.JedisLeaderResolver;
 import org.acme.payments.producers.jedis.JedisPaymentsProcessor;
 import org.acme.payments.producers.jedis.JedisPaymentsRepository;
+import org.acme.payments.producers.mmap.MappedPaymentsRepository;
 import org.apache.commons.pool2.impl.DefaultEvictionPolicy;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import redis.clients.jedis.ConnectionPoolConfig;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.RedisProtocol;
 import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.csc.CacheConfig;
+import redis.clients.jedis.util.JedisURIHelper;
 
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Optional.ofNullable;
@@ -35,23 +53,177 @@ public class JedisProducer {
     @ConfigProperty(name = "jedis.url", defaultValue = "redis://localhost:6377")
     String jedisUrl;
 
+    @Inject
+    @ConfigProperty(name = "jedis.pool.max-total", defaultValue = "32")
+    int jedisPoolMaxTotal;
+
+    @Inject
+    @ConfigProperty(name = "jedis.pool.min-idle", defaultValue = "8")
+    int jedisPoolMinIdle;
+
+    @Inject
+    @ConfigProperty(name = "jedis.client-side-caching.enabled", defaultValue = "true")
+    boolean clientSideCachingEnabled;
+
+    @Inject
+    @ConfigProperty(name = "jedis.client-side-caching.max-size", defaultValue = "64")
+    int clientSideCacheMaxSize;
+
     @Inject
     @ConfigProperty(name = "workers.size", defaultValue = "5")
     int workersSize;
 
+    @Inject
+    @ConfigProperty(name = "workers.max-in-flight", defaultValue = "5")
+    int workersMaxInFlight;
+
+    @Inject
+    @ConfigProperty(name = "payments.summary.page-size", defaultValue = "1000")
+    int summaryPageSize;
+
+    @Inject
+    @ConfigProperty(name = "payments.repository", defaultValue = "zset")
+    String paymentsRepositoryType;
+
+    @Inject
+    @ConfigProperty(name = "payments.counters.publish-interval", defaultValue = "100ms")
+    Duration countersPublishInterval;
+
+    @Inject
+    @ConfigProperty(name = "payments.flush-barrier.timeout", defaultValue = "1s")
+    Duration flushBarrierTimeout;
+
+    @Inject
+    @ConfigProperty(name = "instance.name", defaultValue = "instance-" + "#{java.util.UUID.randomUUID()}")
+    String instanceName;
+
+    @Inject
+    @ConfigProperty(name = "payments.write-behind.enabled", defaultValue = "true")
+    boolean writeBehindEnabled;
+
+    @Inject
+    @ConfigProperty(name = "payments.write-behind.batch-size", defaultValue = "200")
+    int writeBehindBatchSize;
+
+    @Inject
+    @ConfigProperty(name = "payments.write-behind.flush-interval", defaultValue = "50ms")
+    Duration writeBehindFlushInterval;
+
+    @Inject
+    @ConfigProperty(name = "payments.log.path", defaultValue = "payments.log")
+    String paymentsLogPath;
+
+    @Inject
+    @ConfigProperty(name = "payments.log.capacity", defaultValue = "1000000")
+    long paymentsLogCapacity;
+
+    @Inject
+    @ConfigProperty(name = "payments.buffer.capacity", defaultValue = "16384")
+    int bufferCapacity;
+
+    @Inject
+    @ConfigProperty(name = "payments.buffer.overflow-capacity", defaultValue = "4096")
+    int bufferOverflowCapacity;
+
+    @Inject
+    @ConfigProperty(name = "payments.buffer.batch-size", defaultValue = "64")
+    int bufferBatchSize;
+
+    @Inject
+    @ConfigProperty(name = "payments.buffer.wait-strategy", defaultValue = "park")
+    String bufferWaitStrategy;
+
+    @Inject
+    @ConfigProperty(name = "payments.buffer.park-time", defaultValue = "1ms")
+    Duration bufferParkTime;
+
     @Inject
     @VirtualThreads
     ExecutorService executeService;
 
+    private AtomicReference<WriteBehindPaymentsRepository> writeBehindRepositoryRef = new AtomicReference<>();
+
+    private AtomicReference<JedisCounterPaymentsRepository> counterRepositoryRef = new AtomicReference<>();
+
+    private AtomicReference<MappedPaymentsRepository> mappedRepositoryRef = new AtomicReference<>();
+
     @Produces
     public PaymentsRepository paymentsRepository(Jsonb jsonb, UnifiedJedis jedis) {
-        return new JedisPaymentsRepository(jsonb, jedis);
+        return switch (paymentsRepositoryType) {
+            case "zset" -> zsetPaymentsRepository(jsonb, jedis);
+            case "counters" -> counterRepositoryRef.updateAndGet(existing ->
+                    existing == null ? new JedisCounterPaymentsRepository(
+                            jedis,
+                            instanceName,
+                            countersPublishInterval,
+                            new JedisFlushBarrier(jedis, flushBarrierTimeout, executeService),
+                            executeService).start() : existing);
+            // single-host only: every instance would otherwise keep its own log
+            case "mmap" -> mappedRepositoryRef.updateAndGet(existing ->
+                    existing == null ? new MappedPaymentsRepository(
+                            Path.of(paymentsLogPath),
+                            paymentsLogCapacity) : existing);
+            default -> throw new IllegalArgumentException("Unknown payments repository: " + paymentsRepositoryType);
+        };
+    }
+
+    private PaymentsRepository zsetPaymentsRepository(Jsonb jsonb, UnifiedJedis jedis) {
+        var repository = new JedisPaymentsRepository(jsonb, jedis, summaryPageSize);
+        if (!writeBehindEnabled) {
+            return repository;
+        }
+        // a single buffer must be shared, otherwise a summary would only flush its own
+        return writeBehindRepositoryRef.updateAndGet(existing ->
+                existing == null ? new WriteBehindPaymentsRepository(
+                        repository,
+                        writeBehindBatchSize,
+                        writeBehindFlushInterval,
+                        new JedisFlushBarrier(jedis, flushBarrierTimeout, executeService),
+                        executeService).start() : existing);
     }
 
 
     @Produces
-    public UnifiedJedis unifiedJedis() {
-        return new UnifiedJedis(jedisUrl);
+    @Singleton
+    public JedisPooled unifiedJedis() {
+        // a single pool shared by every component, so the warm-up can pre-open its connections
+        var poolConfig = new ConnectionPoolConfig();
+        poolConfig.setMaxTotal(jedisPoolMaxTotal);
+        poolConfig.setMaxIdle(jedisPoolMaxTotal);
+        poolConfig.setMinIdle(Math.min(jedisPoolMinIdle, jedisPoolMaxTotal));
+        return new JedisPooled(poolConfig, URI.create(jedisUrl));
+    }
+
+    public void closeUnifiedJedis(@Disposes JedisPooled jedis) {
+        jedis.close();
+    }
+
+    private AtomicReference<UnifiedJedis> cachedJedisRef = new AtomicReference<>();
+
+    // RESP3 client with server-assisted client-side caching (CLIENT TRACKING) for the
+    // rarely changing health keys; a single connection receives every invalidation
+    private UnifiedJedis cachedJedis(UnifiedJedis jedis) {
+        if (!clientSideCachingEnabled) {
+            return jedis;
+        }
+        return cachedJedisRef.updateAndGet(existing -> {
+            if (existing != null) {
+                return existing;
+            }
+            var uri = URI.create(jedisUrl);
+            var clientConfig = DefaultJedisClientConfig.builder()
+                    .user(JedisURIHelper.getUser(uri))
+                    .password(JedisURIHelper.getPassword(uri))
+                    .database(JedisURIHelper.getDBIndex(uri))
+                    .protocol(RedisProtocol.RESP3)
+                    .build();
+            var poolConfig = new ConnectionPoolConfig();
+            poolConfig.setMaxTotal(1);
+            return new JedisPooled(JedisURIHelper.getHostAndPort(uri),
+                    clientConfig,
+                    CacheConfig.builder().maxSize(clientSideCacheMaxSize).build(),
+                    poolConfig);
+        });
     }
 
     @Produces
@@ -61,7 +233,12 @@ public class JedisProducer {
 
     @Produces
     public HealthCheckRepository healthCheckRepository(Jsonb jsonb, UnifiedJedis jedis) {
-        return new JedisHealthCheckRepository(jsonb, jedis);
+        return new JedisHealthCheckRepository(jsonb, jedis, cachedJedis(jedis));
+    }
+
+    @Produces
+    public QueueDepthProbe queueDepthProbe(UnifiedJedis jedis) {
+        return () -> jedis.llen(JedisPaymentsProcessor.PAYMENTS_QUEUE);
     }
 
     private AtomicReference<JedisPaymentsProcessor> paymentsProcessorRef = new AtomicReference<>();
@@ -77,8 +254,12 @@ public class JedisProducer {
                         jedis,
                         paymentsRepository,
                         externalPaymentProcessor,
-                        new LinkedBlockingQueue<>(),
+                        new PaymentIntakeBuffer(
+                                new PaymentRingBuffer(bufferCapacity, WaitStrategy.of(bufferWaitStrategy, bufferParkTime)),
+                                bufferOverflowCapacity),
+                        bufferBatchSize,
                         workersSize,
+                        workersMaxInFlight,
                         executeService).start() : existing);
     }
 
@@ -86,5 +267,13 @@ public class JedisProducer {
     public void onDestroy() {
         ofNullable(paymentsProcessorRef.get())
                 .ifPresent(JedisPaymentsProcessor::shutdown);
+        ofNullable(writeBehindRepositoryRef.get())
+                .ifPresent(WriteBehindPaymentsRepository::shutdown);
+        ofNullable(counterRepositoryRef.get())
+                .ifPresent(JedisCounterPaymentsRepository::shutdown);
+        ofNullable(mappedRepositoryRef.get())
+                .ifPresent(MappedPaymentsRepository::close);
+        ofNullable(cachedJedisRef.get())
+                .ifPresent(UnifiedJedis::close);
     }
 }
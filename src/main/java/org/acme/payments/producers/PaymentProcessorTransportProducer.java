@@ -0,0 +1,53 @@
+package org.acme.payments.producers;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.acme.payments.domain.PaymentProcessorTransport;
+import org.acme.payments.producers.transport.JdkPaymentProcessorTransport;
+import org.acme.payments.producers.transport.VertxPaymentProcessorTransport;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@ApplicationScoped
+public class PaymentProcessorTransportProducer {
+
+    @Inject
+    @ConfigProperty(name = "payment.transport", defaultValue = "jdk")
+    String transport;
+
+    @Inject
+    @ConfigProperty(name = "payment.transport.timeout", defaultValue = "5s")
+    Duration timeout;
+
+    @Inject
+    @ConfigProperty(name = "payment.transport.pool-size", defaultValue = "10")
+    int poolSize;
+
+    @Inject
+    @ConfigProperty(name = "payment.transport.keep-alive-timeout", defaultValue = "60s")
+    Duration keepAliveTimeout;
+
+    @Produces
+    @Singleton
+    public PaymentProcessorTransport paymentProcessorTransport(HttpClient httpClient, Vertx vertx) {
+        return switch (transport) {
+            case "jdk" -> new JdkPaymentProcessorTransport(httpClient, timeout);
+            case "vertx" -> new VertxPaymentProcessorTransport(vertx.createHttpClient(new HttpClientOptions()
+                    .setProtocolVersion(HttpVersion.HTTP_1_1)
+                    .setKeepAlive(true)
+                    .setKeepAliveTimeout((int) keepAliveTimeout.toSeconds())
+                    .setPipelining(false)
+                    .setTcpNoDelay(true)
+                    .setMaxPoolSize(poolSize)
+                    .setConnectTimeout((int) timeout.toMillis())), timeout);
+            default -> throw new IllegalArgumentException("Unknown payment transport: " + transport);
+        };
+    }
+}
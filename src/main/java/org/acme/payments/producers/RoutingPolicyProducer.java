@@ -0,0 +1,54 @@
+package org.acme.payments.producers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import org.acme.payments.domain.CostAwareRoutingPolicy;
+import org.acme.payments.domain.LatencyRoutingPolicy;
+import org.acme.payments.domain.PaymentProcessors;
+import org.acme.payments.domain.QueueDepthProbe;
+import org.acme.payments.domain.RoutingPolicy;
+import org.acme.payments.domain.WeightedRoutingPolicy;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+
+@ApplicationScoped
+public class RoutingPolicyProducer {
+
+    @Inject
+    @ConfigProperty(name = "routing.policy", defaultValue = "latency")
+    String policy;
+
+    @Inject
+    @ConfigProperty(name = "routing.max-response-time", defaultValue = "100ms")
+    Duration maxResponseTime;
+
+    @Inject
+    @ConfigProperty(name = "routing.max-wait", defaultValue = "1s")
+    Duration maxWait;
+
+    @Inject
+    @ConfigProperty(name = "routing.max-queue-depth", defaultValue = "1000")
+    long maxQueueDepth;
+
+    @Inject
+    @ConfigProperty(name = "routing.latency-cost-per-ms", defaultValue = "0.0005")
+    double latencyCostPerMs;
+
+    @Produces
+    public RoutingPolicy routingPolicy(PaymentProcessors paymentProcessors, QueueDepthProbe queueDepthProbe) {
+        return switch (policy) {
+            case "latency" -> new LatencyRoutingPolicy();
+            case "weighted" -> new WeightedRoutingPolicy(paymentProcessors);
+            case "cost-aware" -> new CostAwareRoutingPolicy(
+                    paymentProcessors,
+                    maxResponseTime,
+                    maxWait,
+                    maxQueueDepth,
+                    latencyCostPerMs,
+                    queueDepthProbe);
+            default -> throw new IllegalArgumentException("Unknown routing policy: " + policy);
+        };
+    }
+}
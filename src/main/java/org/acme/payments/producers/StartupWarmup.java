@@ -0,0 +1,147 @@
+package org.acme.payments.producers;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.virtual.threads.VirtualThreads;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import org.acme.payments.domain.ExternalPaymentHealthCheckChecker;
+import org.acme.payments.domain.HealthCheckData;
+import org.acme.payments.domain.HealthCheckSnapshot;
+import org.acme.payments.domain.PaymentProcessor;
+import org.acme.payments.domain.PaymentProcessorTransport;
+import org.acme.payments.domain.PaymentProcessors;
+import org.acme.payments.domain.PaymentRequest;
+import org.acme.payments.domain.PaymentsService;
+import org.acme.payments.domain.ProcessedPayment;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisPooled;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.IntStream;
+
+/**
+ * Warms the instance up right after boot: pre-opens the Redis pool, opens keep-alive
+ * connections to the payment processors, exercises the codecs and the summary path and
+ * starts the health checker. The instance only reports ready after all of that is done.
+ */
+@ApplicationScoped
+public class StartupWarmup {
+
+    private final static Logger logger = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private final boolean enabled;
+    private final int httpConnections;
+    private final List<URI> processorURLs;
+    private final JedisPooled jedis;
+    private final PaymentProcessorTransport transport;
+    private final Jsonb jsonb;
+    private final PaymentsService paymentsService;
+    private final ExternalPaymentHealthCheckChecker healthCheckChecker;
+    private final ExecutorService executorService;
+    private volatile boolean ready;
+
+    @Inject
+    public StartupWarmup(@ConfigProperty(name = "warmup.enabled", defaultValue = "true")
+                         boolean enabled,
+                         @ConfigProperty(name = "warmup.http.connections", defaultValue = "5")
+                         int httpConnections,
+                         PaymentProcessors paymentProcessors,
+                         JedisPooled jedis,
+                         PaymentProcessorTransport transport,
+                         Jsonb jsonb,
+                         PaymentsService paymentsService,
+                         ExternalPaymentHealthCheckChecker healthCheckChecker,
+                         @VirtualThreads
+                         ExecutorService executorService) {
+        this.enabled = enabled;
+        this.httpConnections = httpConnections;
+        this.processorURLs = paymentProcessors.all().stream().map(PaymentProcessor::url).toList();
+        this.jedis = jedis;
+        this.transport = transport;
+        this.jsonb = jsonb;
+        this.paymentsService = paymentsService;
+        this.healthCheckChecker = healthCheckChecker;
+        this.executorService = executorService;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            ready = true;
+            return;
+        }
+        executorService.execute(this::warmup);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void warmup() {
+        long start = System.nanoTime();
+        try {
+            healthCheckChecker.startCheck();
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(this::warmupRedis, executorService),
+                    CompletableFuture.runAsync(this::warmupProcessors, executorService),
+                    CompletableFuture.runAsync(this::warmupCodecs, executorService)
+            ).join();
+            warmupSummary();
+        } catch (RuntimeException e) {
+            logger.warn("Warm-up finished with errors", e);
+        } finally {
+            ready = true;
+            logger.info("Warm-up finished in {} ms", Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+    }
+
+    private void warmupRedis() {
+        try {
+            // fills the pool up to its min-idle size
+            jedis.getPool().preparePool();
+            try (var connection = jedis.getPool().getResource()) {
+                connection.ping();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to warm up the Redis pool", e);
+        }
+    }
+
+    private void warmupProcessors() {
+        // concurrent requests force the transport to open (and keep alive) one connection each
+        CompletableFuture.allOf(processorURLs.stream()
+                .flatMap(url -> IntStream.range(0, httpConnections)
+                        .mapToObj(i -> transport.get(url.resolve("/"))
+                                .exceptionally(e -> {
+                                    logger.warn("Failed to open a connection to {}", url, e);
+                                    return -1;
+                                })
+                                .toCompletableFuture()))
+                .toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void warmupCodecs() {
+        var request = new PaymentRequest(UUID.randomUUID().toString(), BigDecimal.TEN);
+        jsonb.fromJson(jsonb.toJson(request), PaymentRequest.class);
+        var payment = ProcessedPayment.of("default", request);
+        jsonb.fromJson(jsonb.toJson(payment), ProcessedPayment.class);
+        var data = HealthCheckData.of("default", URI.create("http://localhost/"), false, 0);
+        jsonb.fromJson(jsonb.toJson(data), HealthCheckData.class);
+        jsonb.fromJson(jsonb.toJson(HealthCheckSnapshot.of(List.of(data))), HealthCheckSnapshot.class);
+    }
+
+    private void warmupSummary() {
+        var now = Instant.now();
+        jsonb.toJson(paymentsService.summary(now.minusSeconds(1), now));
+    }
+}
@@ -0,0 +1,246 @@
+package org.acme.payments.producers.jedis;
+
+import org.acme.payments.domain.FlushBarrier;
+import org.acme.payments.domain.PaymentSummary;
+import org.acme.payments.domain.PaymentsRepository;
+import org.acme.payments.domain.PaymentsSummary;
+import org.acme.payments.domain.ProcessedPayment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps per-second, per-processor counters of requests and cents in memory and periodically
+ * publishes their deltas to a Redis hash owned by this instance. Every instance only ever adds
+ * to its own hash (a grow-only counter), so a summary is the sum of all instances' hashes.
+ * <p>
+ * Summaries and purges first go through the {@link FlushBarrier}: every instance publishes its
+ * pending deltas before a summary reads the hashes, and drops them, along with what it already
+ * published, before a purge deletes the hashes, so purged payments are never published again.
+ */
+public class JedisCounterPaymentsRepository implements PaymentsRepository {
+
+    private final static Logger logger = LoggerFactory.getLogger(JedisCounterPaymentsRepository.class);
+
+    public static final String PAYMENTS_COUNTERS_INSTANCES = "payments-counters-instances";
+    public static final String PAYMENTS_COUNTERS_PREFIX = "payments-counters:";
+
+    private static final String COUNT = "count";
+    private static final String CENTS = "cents";
+
+    // counters older than this are not expected to change anymore and are dropped once published
+    private static final long RETAINED_SECONDS = 60;
+
+    private static final String PUBLISH_SCRIPT = """
+            redis.call('SADD', KEYS[1], ARGV[1])
+            for i = 2, #ARGV, 2 do
+                redis.call('HINCRBY', KEYS[2], ARGV[i], ARGV[i + 1])
+            end
+            return 1
+            """;
+
+    private final UnifiedJedis jedis;
+    private final String instanceName;
+    private final String instanceCounters;
+    private final Duration publishInterval;
+    private final FlushBarrier flushBarrier;
+    private final ExecutorService executorService;
+    private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private volatile boolean running = false;
+
+    public JedisCounterPaymentsRepository(UnifiedJedis jedis,
+                                          String instanceName,
+                                          Duration publishInterval,
+                                          FlushBarrier flushBarrier,
+                                          ExecutorService executorService) {
+        this.jedis = jedis;
+        this.instanceName = instanceName;
+        this.instanceCounters = PAYMENTS_COUNTERS_PREFIX + instanceName;
+        this.publishInterval = publishInterval;
+        this.flushBarrier = flushBarrier;
+        this.executorService = executorService;
+    }
+
+    public JedisCounterPaymentsRepository start() {
+        if (running) {
+            return this;
+        }
+        running = true;
+        flushBarrier.listen(this::onFlushRequest);
+        executorService.execute(() -> {
+            while (running) {
+                try {
+                    Thread.sleep(publishInterval);
+                    publish();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to publish payment counters", e);
+                }
+            }
+        });
+        return this;
+    }
+
+    public void shutdown() {
+        this.running = false;
+        flushBarrier.close();
+        publish();
+    }
+
+    @Override
+    public ProcessedPayment save(ProcessedPayment payment) {
+        counters.computeIfAbsent(new CounterKey(payment.requestedAt().getEpochSecond(), payment.processedBy()),
+                        key -> new Counter())
+                .add(payment.amount().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact());
+        return payment;
+    }
+
+    @Override
+    public PaymentsSummary summary(Instant from, Instant to) {
+        // this instance's own deltas do not depend on its subscription being up
+        publish();
+        flushBarrier.await(FlushBarrier.Request.FLUSH);
+        long min = Optional.ofNullable(from).map(Instant::toEpochMilli).orElse(Long.MIN_VALUE);
+        long max = Optional.ofNullable(to).map(Instant::toEpochMilli).orElse(Long.MAX_VALUE);
+
+        Map<String, long[]> totals = new HashMap<>();
+        for (String instance : jedis.smembers(PAYMENTS_COUNTERS_INSTANCES)) {
+            jedis.hgetAll(PAYMENTS_COUNTERS_PREFIX + instance).forEach((field, value) -> {
+                int secondEnd = field.indexOf(':');
+                int processorEnd = field.lastIndexOf(':');
+                long epochMilli = Long.parseLong(field, 0, secondEnd, 10) * 1000;
+                if (epochMilli < min || epochMilli > max) {
+                    return;
+                }
+                long[] total = totals.computeIfAbsent(field.substring(secondEnd + 1, processorEnd), key -> new long[2]);
+                total[field.endsWith(COUNT) ? 0 : 1] += Long.parseLong(value);
+            });
+        }
+
+        Map<String, PaymentSummary> summary = new HashMap<>();
+        totals.forEach((processedBy, total) ->
+                summary.put(processedBy, PaymentSummary.of(total[0], BigDecimal.valueOf(total[1], 2))));
+        return PaymentsSummary.of(summary);
+    }
+
+    @Override
+    public void purge() {
+        flushBarrier.await(FlushBarrier.Request.DISCARD);
+        publishLock.lock();
+        try {
+            counters.clear();
+            for (String instance : jedis.smembers(PAYMENTS_COUNTERS_INSTANCES)) {
+                jedis.del(PAYMENTS_COUNTERS_PREFIX + instance);
+            }
+            jedis.del(PAYMENTS_COUNTERS_INSTANCES);
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    @Override
+    public long compact(Instant before) {
+        // counters are already aggregated per second, there is nothing to roll up
+        return 0;
+    }
+
+    /**
+     * Sends every unpublished delta to Redis in a single round trip. Other instances' pending
+     * deltas are not visible until they publish theirs, at most one publish interval later unless
+     * a summary asks for them through the {@link FlushBarrier}.
+     */
+    public void publish() {
+        publishLock.lock();
+        try {
+            long oldest = Instant.now().getEpochSecond() - RETAINED_SECONDS;
+            List<String> args = new ArrayList<>();
+            args.add(instanceName);
+            Map<CounterKey, Counter> published = new HashMap<>();
+            Map<CounterKey, Counter> evicted = new HashMap<>();
+            counters.forEach((key, counter) -> {
+                if (key.epochSecond() < oldest && counters.remove(key, counter)) {
+                    evicted.put(key, counter);
+                }
+                long count = counter.count.sum();
+                long cents = counter.cents.sum();
+                if (count != counter.publishedCount || cents != counter.publishedCents) {
+                    String field = key.epochSecond() + ":" + key.processedBy() + ":";
+                    args.add(field + COUNT);
+                    args.add(String.valueOf(count - counter.publishedCount));
+                    args.add(field + CENTS);
+                    args.add(String.valueOf(cents - counter.publishedCents));
+                    counter.pendingCount = count;
+                    counter.pendingCents = cents;
+                    published.put(key, counter);
+                }
+            });
+            if (args.size() > 1) {
+                try {
+                    jedis.eval(PUBLISH_SCRIPT, List.of(PAYMENTS_COUNTERS_INSTANCES, instanceCounters), args);
+                } catch (RuntimeException e) {
+                    evicted.forEach(counters::putIfAbsent);
+                    throw e;
+                }
+                published.values().forEach(Counter::markPublished);
+            }
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    private void onFlushRequest(FlushBarrier.Request request) {
+        switch (request) {
+            case FLUSH -> publish();
+            case DISCARD -> {
+                // waits for a publish in progress, which would otherwise land after the purge
+                publishLock.lock();
+                try {
+                    counters.clear();
+                } finally {
+                    publishLock.unlock();
+                }
+            }
+        }
+    }
+
+    private record CounterKey(long epochSecond, String processedBy) {
+    }
+
+    private static final class Counter {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder cents = new LongAdder();
+        // only accessed while holding the publish lock
+        private long publishedCount;
+        private long publishedCents;
+        private long pendingCount;
+        private long pendingCents;
+
+        void add(long amountInCents) {
+            count.increment();
+            cents.add(amountInCents);
+        }
+
+        void markPublished() {
+            publishedCount = pendingCount;
+            publishedCents = pendingCents;
+        }
+    }
+}
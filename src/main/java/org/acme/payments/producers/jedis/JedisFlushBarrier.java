@@ -0,0 +1,112 @@
+package org.acme.payments.producers.jedis;
+
+import org.acme.payments.domain.FlushBarrier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Requests are published on a Redis channel every instance subscribes to. PUBLISH returns how
+ * many subscribers received the request; each of them pushes a confirmation to a list owned by
+ * the request once handled, and the requester pops that many confirmations.
+ */
+public class JedisFlushBarrier implements FlushBarrier {
+
+    private final static Logger logger = LoggerFactory.getLogger(JedisFlushBarrier.class);
+
+    public static final String PAYMENTS_FLUSH_CHANNEL = "payments-flush";
+    public static final String PAYMENTS_FLUSH_ACKS_PREFIX = "payments-flush-acks:";
+
+    private final UnifiedJedis jedis;
+    private final Duration timeout;
+    private final ExecutorService executorService;
+    private volatile Consumer<Request> handler;
+    private volatile JedisPubSub subscriber;
+    private volatile boolean running = false;
+
+    public JedisFlushBarrier(UnifiedJedis jedis, Duration timeout, ExecutorService executorService) {
+        this.jedis = jedis;
+        this.timeout = timeout;
+        this.executorService = executorService;
+    }
+
+    @Override
+    public void listen(Consumer<Request> handler) {
+        this.handler = handler;
+        if (running) {
+            return;
+        }
+        running = true;
+        executorService.execute(() -> {
+            while (running) {
+                try {
+                    subscriber = new Subscriber();
+                    // blocks until unsubscribed or the connection is lost
+                    jedis.subscribe(subscriber, PAYMENTS_FLUSH_CHANNEL);
+                } catch (RuntimeException e) {
+                    logger.warn("Lost the subscription to the flush requests", e);
+                    try {
+                        Thread.sleep(timeout);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void await(Request request) {
+        String id = UUID.randomUUID().toString();
+        String acks = PAYMENTS_FLUSH_ACKS_PREFIX + id;
+        long expected = jedis.publish(PAYMENTS_FLUSH_CHANNEL, request.name() + ":" + id);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (long confirmed = 0; confirmed < expected; confirmed++) {
+            // BLPOP takes seconds, 0 would block forever
+            double remaining = Math.max(0.001, (deadline - System.nanoTime()) / 1_000_000_000d);
+            if (System.nanoTime() >= deadline || jedis.blpop(remaining, acks) == null) {
+                logger.warn("Only {} of {} instances confirmed the {} request within {}", confirmed, expected, request, timeout);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        var current = subscriber;
+        if (current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+    }
+
+    private void handle(String message) {
+        int separator = message.indexOf(':');
+        var request = Request.valueOf(message.substring(0, separator));
+        String acks = PAYMENTS_FLUSH_ACKS_PREFIX + message.substring(separator + 1);
+        try {
+            handler.accept(request);
+            jedis.rpush(acks, "1");
+            // left behind when the requester timed out
+            jedis.pexpire(acks, timeout.toMillis() * 2);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to handle the {} request", request, e);
+        }
+    }
+
+    private final class Subscriber extends JedisPubSub {
+
+        @Override
+        public void onMessage(String channel, String message) {
+            // handled off the subscriber thread, which must keep reading messages
+            executorService.execute(() -> handle(message));
+        }
+    }
+}
@@ -1,26 +1,71 @@
 package org.acme.payments.producers.jedis;
 
 import jakarta.json.bind.Jsonb;
-import org.acme.payments.domain.HealthCheckData;
 import org.acme.payments.domain.HealthCheckRepository;
-import redis.clients.jedis.commands.StringCommands;
+import org.acme.payments.domain.HealthCheckSnapshot;
+import redis.clients.jedis.UnifiedJedis;
 
-import java.util.Optional;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
-public record JedisHealthCheckRepository (Jsonb jsonb, StringCommands jedisCommands) implements HealthCheckRepository {
+/**
+ * Writes go through {@code jedis}; reads go through {@code cachedJedis}, which may be a client with
+ * server-assisted client-side caching, so repeated reads of an unchanged snapshot never leave the
+ * process. The last decoded snapshot is kept together with its JSON to skip decoding it again.
+ */
+public class JedisHealthCheckRepository implements HealthCheckRepository {
 
     public static final String ACTUAL_PAYMENT_SERVICE = "actual-payment-service";
+    public static final String ACTUAL_PAYMENT_SERVICE_TOKEN = "actual-payment-service-token";
+
+    // rejects snapshots published under an older lease than the current one
+    private static final String FENCED_UPDATE_SCRIPT = """
+            local current = tonumber(redis.call('GET', KEYS[2]) or '0')
+            if tonumber(ARGV[2]) < current then
+                return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[1])
+            redis.call('SET', KEYS[2], ARGV[2])
+            return 1
+            """;
+
+    private final Jsonb jsonb;
+    private final UnifiedJedis jedis;
+    private final UnifiedJedis cachedJedis;
+    private final AtomicReference<DecodedSnapshot> lastDecoded = new AtomicReference<>();
+
+    public JedisHealthCheckRepository(Jsonb jsonb, UnifiedJedis jedis, UnifiedJedis cachedJedis) {
+        this.jsonb = jsonb;
+        this.jedis = jedis;
+        this.cachedJedis = cachedJedis;
+    }
 
     @Override
-    public void update(HealthCheckData healthCheckData) {
-        if (healthCheckData != null)
-            jedisCommands.set(ACTUAL_PAYMENT_SERVICE, jsonb.toJson(healthCheckData));
+    public boolean update(HealthCheckSnapshot snapshot) {
+        if (snapshot == null) {
+            return false;
+        }
+        var stored = (Long) jedis.eval(FENCED_UPDATE_SCRIPT,
+                List.of(ACTUAL_PAYMENT_SERVICE, ACTUAL_PAYMENT_SERVICE_TOKEN),
+                List.of(jsonb.toJson(snapshot), String.valueOf(snapshot.fencingToken())));
+        return stored == 1;
     }
 
     @Override
-    public HealthCheckData getActual() {
-        return Optional.ofNullable(jedisCommands.get(ACTUAL_PAYMENT_SERVICE))
-                .map(json -> jsonb.fromJson(json, HealthCheckData.class))
-                .orElse(null);
+    public HealthCheckSnapshot getActual() {
+        String json = cachedJedis.get(ACTUAL_PAYMENT_SERVICE);
+        if (json == null) {
+            return null;
+        }
+        var decoded = lastDecoded.get();
+        if (decoded != null && (decoded.json() == json || decoded.json().equals(json))) {
+            return decoded.snapshot();
+        }
+        var snapshot = jsonb.fromJson(json, HealthCheckSnapshot.class);
+        lastDecoded.set(new DecodedSnapshot(json, snapshot));
+        return snapshot;
+    }
+
+    private record DecodedSnapshot(String json, HealthCheckSnapshot snapshot) {
     }
 }
@@ -3,25 +3,50 @@ package org.acme.payments.producers.jedis;
 import org.acme.payments.domain.LeaderResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.commands.StringCommands;
-import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.UnifiedJedis;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 
-public record JedisLeaderResolver(StringCommands jedisStringCommands) implements LeaderResolver {
+/**
+ * The leader key is deliberately not read through the client-side cache: the holder extends it on
+ * every renewal, so each renewal would push an invalidation to every standby and their next read
+ * would miss anyway.
+ */
+public record JedisLeaderResolver(UnifiedJedis jedis) implements LeaderResolver {
 
     public final static Logger logger= LoggerFactory.getLogger(JedisLeaderResolver.class);
 
     public static final String LEADER = "leader";
+    public static final String LEADER_EPOCH = "leader-epoch";
+
+    // compare-and-extend: the holder renews its lease, anyone takes a free lease
+    // and bumps the epoch, which is used as fencing token
+    private static final String LEASE_SCRIPT = """
+            local holder = redis.call('GET', KEYS[1])
+            if holder == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return tonumber(redis.call('GET', KEYS[2]) or '0')
+            end
+            if not holder then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+                return redis.call('INCR', KEYS[2])
+            end
+            return -1
+            """;
+
+    @Override
+    public OptionalLong lease(String myId, Duration ttl) {
+        long token = (Long) jedis.eval(LEASE_SCRIPT,
+                List.of(LEADER, LEADER_EPOCH),
+                List.of(myId, String.valueOf(ttl.toMillis())));
+        return token < 0 ? OptionalLong.empty() : OptionalLong.of(token);
+    }
 
     @Override
-    public boolean amILeader(String myId, Duration ttl) {
-        var ret = jedisStringCommands.set(LEADER, myId, SetParams.setParams().nx().ex(ttl.getSeconds()));
-        if ("OK".equals(ret)) {
-            // this id is the leader
-            logger.info("Successfully set leader for '{}'", myId);
-            return true;
-        }
-        return myId.equals(jedisStringCommands.get(LEADER));
+    public Optional<String> currentLeader() {
+        return Optional.ofNullable(jedis.get(LEADER));
     }
 }
@@ -2,7 +2,9 @@ package org.acme.payments.producers.jedis;
 
 import jakarta.json.bind.Jsonb;
 import org.acme.payments.domain.ExternalPaymentProcessor;
+import org.acme.payments.domain.PaymentIntakeBuffer;
 import org.acme.payments.domain.PaymentRequest;
+import org.acme.payments.domain.PaymentRingBuffer;
 import org.acme.payments.domain.PaymentsProcessor;
 import org.acme.payments.domain.PaymentsRepository;
 import org.acme.payments.domain.ProcessedPayment;
@@ -11,9 +13,13 @@ import org.slf4j.LoggerFactory;
 import redis.clients.jedis.UnifiedJedis;
 import redis.clients.jedis.exceptions.JedisException;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -23,28 +29,37 @@ public class JedisPaymentsProcessor implements PaymentsProcessor {
 
     public static final String PAYMENTS_QUEUE = "payments-queued";
 
+    private static final Duration QUEUE_RETRY_BACKOFF = Duration.ofMillis(100);
+
     private volatile boolean running = false;
     private final Jsonb jsonb;
     private final UnifiedJedis jedis;
     private final PaymentsRepository paymentsRepository;
     private final ExternalPaymentProcessor externalPaymentProcessor;
-    private final LinkedBlockingQueue<PaymentRequest> queue;
+    private final PaymentIntakeBuffer queue;
+    private final int batchSize;
     private final int workersSize;
+    // payments sent to a processor and not completed yet, across all workers
+    private final Semaphore inFlight;
     private final ExecutorService executeService;
 
     public JedisPaymentsProcessor(Jsonb jsonb,
                                   UnifiedJedis jedis,
                                   PaymentsRepository paymentsRepository,
                                   ExternalPaymentProcessor externalPaymentProcessor,
-                                  LinkedBlockingQueue<PaymentRequest> queue,
+                                  PaymentIntakeBuffer queue,
+                                  int batchSize,
                                   int workersSize,
+                                  int maxInFlight,
                                   ExecutorService executeService) {
         this.jsonb = jsonb;
         this.jedis = jedis;
         this.paymentsRepository = paymentsRepository;
         this.externalPaymentProcessor = externalPaymentProcessor;
         this.queue = queue;
+        this.batchSize = batchSize;
         this.workersSize = workersSize;
+        this.inFlight = new Semaphore(maxInFlight);
         this.executeService = executeService;
     }
 
@@ -62,15 +77,24 @@ public class JedisPaymentsProcessor implements PaymentsProcessor {
         System.out.printf("Started %d workers for queue payment processing%n", initiatedWorker);
 
         // Start a separate thread to handle queuing payment requests to Redis
-        // This thread will take payment requests from the queue and push them to Redis
+        // This thread drains the intake buffer (the ring first, then the overflow) in batches and pushes each batch to Redis with a single LPUSH
         this.executeService.execute(() -> {
+            String[] batch = new String[batchSize];
+            int[] size = new int[1];
             while (running) {
                 try {
-                    PaymentRequest paymentRequest = queue.take();
-                    queueInRedis(paymentRequest);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt(); // Restore interrupted status
-                    break; // Exit the loop if interrupted
+                    size[0] = 0;
+                    queue.drainWaiting(batchSize,
+                            (msb, lsb, amountInCents, receivedAtMillis) ->
+                                    batch[size[0]++] = toJson(msb, lsb, amountInCents, receivedAtMillis),
+                            overflowed -> batch[size[0]++] = jsonb.toJson(overflowed),
+                            () -> running);
+                    if (size[0] > 0) {
+                        pushToRedis(size[0] == batchSize ? batch : Arrays.copyOf(batch, size[0]));
+                        Arrays.fill(batch, null);
+                    }
+                } catch (RuntimeException ex) {
+                    logger.warn("Failed to queue payments in Redis: {}", ex.getMessage(), ex);
                 }
             }
         });
@@ -81,36 +105,98 @@ public class JedisPaymentsProcessor implements PaymentsProcessor {
         this.running = false;
     }
 
+    // the batch was already taken out of the ring: it is retried until Redis takes it,
+    // and nothing else is drained meanwhile, so the ring fills up and applies back-pressure
+    private void pushToRedis(String[] payments) {
+        while (true) {
+            try {
+                jedis.lpush(PAYMENTS_QUEUE, payments);
+                return;
+            } catch (RuntimeException ex) {
+                if (!running) {
+                    logger.error("Dropped {} accepted payments that could not be queued in Redis", payments.length, ex);
+                    return;
+                }
+                logger.warn("Failed to queue {} payments in Redis, retrying: {}", payments.length, ex.getMessage(), ex);
+            }
+            try {
+                Thread.sleep(QUEUE_RETRY_BACKOFF);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Dropped {} accepted payments that could not be queued in Redis", payments.length);
+                return;
+            }
+        }
+    }
+
     private Runnable getPaymentTask() {
         return () -> this.listenForPayments(
                 this::retrievePaymentRequest,
                 paymentsRepository::save,
-                this::queueInRedis // On processing failure, re-queue the payment request
+                this::queueInRedis, // On processing failure, re-queue the payment request
+                this::deferInRedis
         );
     }
 
+    /**
+     * Pops payments and hands them to the processor without waiting for the response; the
+     * outcome is handled on {@code executeService} once the processor answers. A worker only
+     * pops the next payment while fewer than {@code maxInFlight} payments are pending.
+     */
     public void listenForPayments(Supplier<Optional<PaymentRequest>> paymentRequestSupplier,
                                   Consumer<ProcessedPayment> processedPaymentConsumer,
-                                  Consumer<PaymentRequest> onProcessingFailed) {
+                                  Consumer<PaymentRequest> onProcessingFailed,
+                                  Consumer<PaymentRequest> onDeferred) {
         while (running) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            boolean dispatched = false;
             try {
                 Optional<PaymentRequest> receivedPaymentRequest = paymentRequestSupplier.get();
                 // Process the payment request if it was received
-                receivedPaymentRequest.ifPresent(paymentRequest ->
-                        externalPaymentProcessor.process(paymentRequest)
-                                .ifPresentOrElse(
-                                        processedPaymentConsumer,
-                                        () -> onProcessingFailed.accept(paymentRequest)
-                                ));
+                if (receivedPaymentRequest.isPresent()) {
+                    var paymentRequest = receivedPaymentRequest.get();
+                    externalPaymentProcessor.process(paymentRequest)
+                            .whenCompleteAsync((outcome, error) -> {
+                                try {
+                                    if (error == null && outcome.succeeded()) {
+                                        processedPaymentConsumer.accept(outcome.payment());
+                                    } else if (error == null && outcome.deferred()) {
+                                        onDeferred.accept(paymentRequest);
+                                    } else {
+                                        onProcessingFailed.accept(paymentRequest);
+                                    }
+                                } catch (RuntimeException ex) {
+                                    onListenerFailure(ex);
+                                } finally {
+                                    inFlight.release();
+                                }
+                            }, executeService);
+                    dispatched = true;
+                }
             } catch (RuntimeException ex) {
-                if (ex instanceof JedisException jedisEx) {
-                    // printing any Jedis exception stack trace
-                    logger.warn("Jedis exception occurred: {}", jedisEx.getMessage(), jedisEx);
+                onListenerFailure(ex);
+            } finally {
+                if (!dispatched) {
+                    inFlight.release();
                 }
             }
         }
     }
 
+    private void onListenerFailure(RuntimeException ex) {
+        if (ex instanceof JedisException jedisEx) {
+            // printing any Jedis exception stack trace
+            logger.warn("Jedis exception occurred: {}", jedisEx.getMessage(), jedisEx);
+        } else {
+            // e.g. a repository refusing a payment the processor already accepted
+            logger.error("Failed to handle a payment: {}", ex.getMessage(), ex);
+        }
+    }
 
     private Optional<PaymentRequest> retrievePaymentRequest() {
         // BLPOP returns a list of two elements: the queue name and the message
@@ -122,13 +208,37 @@ public class JedisPaymentsProcessor implements PaymentsProcessor {
         return Optional.empty();
     }
 
+    /**
+     * Never touches Redis, as it runs on the event loop. Throws {@link RejectedExecutionException}
+     * when both the ring and the overflow queue are full.
+     */
     @Override
     public void queue(PaymentRequest paymentRequest) {
-        this.queue.offer(paymentRequest);
+        if (!this.queue.offer(paymentRequest)) {
+            throw new RejectedExecutionException("The payments buffer is full");
+        }
+    }
+
+    private static String toJson(long correlationIdMsb, long correlationIdLsb, long amountInCents, long receivedAtMillis) {
+        var json = new StringBuilder(128)
+                .append("{\"correlationId\":\"").append(new UUID(correlationIdMsb, correlationIdLsb))
+                .append("\",\"amount\":").append(PaymentRingBuffer.amount(amountInCents));
+        var receivedAt = PaymentRingBuffer.receivedAt(receivedAtMillis);
+        if (receivedAt != null) {
+            json.append(",\"receivedAt\":\"").append(receivedAt).append('"');
+        }
+        return json.append('}').toString();
     }
 
     private void queueInRedis(PaymentRequest paymentRequest) {
         jedis.lpush(PAYMENTS_QUEUE, jsonb.toJson(paymentRequest));
     }
 
+    // the queue is LIFO: a deferred payment goes back to the head, as at the tail it would wait for
+    // everything arriving later, well past routing.max-wait. It only comes back after the defer
+    // backoff, so it is not popped right back in a hot loop.
+    private void deferInRedis(PaymentRequest paymentRequest) {
+        jedis.lpush(PAYMENTS_QUEUE, jsonb.toJson(paymentRequest));
+    }
+
 }
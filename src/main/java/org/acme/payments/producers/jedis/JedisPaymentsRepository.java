@@ -9,17 +9,126 @@ import redis.clients.jedis.UnifiedJedis;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
-public record JedisPaymentsRepository(Jsonb jsonb, UnifiedJedis jedis) implements PaymentsRepository {
+public record JedisPaymentsRepository(Jsonb jsonb, UnifiedJedis jedis, int pageSize) implements PaymentsRepository {
 
     public static final String PAYMENTS = "payments";
+    public static final String PAYMENTS_ROLLUP = "payments-rollup";
+    public static final String PAYMENTS_ROLLUP_TOTALS = "payments-rollup-totals";
+    // bumped whenever members leave the payments ZSETs, i.e. by compaction and purge
+    public static final String PAYMENTS_GENERATION = "payments-generation";
+
+    // moves one batch of raw payments into per-minute buckets atomically
+    private static final String COMPACT_SCRIPT = """
+            local raw = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', '(' .. ARGV[1], 'WITHSCORES', 'LIMIT', 0, tonumber(ARGV[2]))
+            for i = 1, #raw, 2 do
+                local payment = cjson.decode(raw[i])
+                local minute = math.floor(tonumber(raw[i + 1]) / 60000) * 60000
+                local bucket = string.format('%d', minute) .. ':' .. payment.processedBy
+                redis.call('ZADD', KEYS[2], minute, bucket)
+                redis.call('HINCRBY', KEYS[3], bucket .. ':count', 1)
+                redis.call('HINCRBY', KEYS[3], bucket .. ':cents', math.floor(tonumber(payment.amount) * 100 + 0.5))
+                redis.call('ZREM', KEYS[1], raw[i])
+            end
+            if #raw > 0 then
+                redis.call('INCR', KEYS[4])
+            end
+            return #raw / 2
+            """;
+
+    // Sums one page of a ZSET window (raw payments or roll-up buckets), resuming right after the
+    // cursor member: its rank is looked up on every call, so members added meanwhile can neither
+    // shift the page nor be read twice. Each call costs O(log N + page size). Returns the generation
+    // the page was read at, the cursor for the next page ('' once the window ends) and
+    // processor, count, cents triples. When the generation differs from the expected one it
+    // returns only the new generation, as members already counted may have been moved or removed.
+    private static final String PAGE_SCRIPT_HEAD = """
+            local generation = redis.call('GET', KEYS[2]) or '0'
+            if ARGV[5] ~= '' and ARGV[5] ~= generation then
+                return {generation}
+            end
+            local start
+            if ARGV[4] == '' then
+                start = redis.call('ZCOUNT', KEYS[1], '-inf', '(' .. ARGV[1])
+            else
+                local rank = redis.call('ZRANK', KEYS[1], ARGV[4])
+                if not rank then
+                    return {''}
+                end
+                start = rank + 1
+            end
+            local pageSize = tonumber(ARGV[3])
+            local max = ARGV[2] == '+inf' and math.huge or tonumber(ARGV[2])
+            local members = {}
+            local page = redis.call('ZRANGE', KEYS[1], start, start + pageSize - 1, 'WITHSCORES')
+            for i = 1, #page, 2 do
+                if tonumber(page[i + 1]) > max then
+                    break
+                end
+                table.insert(members, page[i])
+            end
+            local totals = {}
+            local function add(processedBy, count, cents)
+                local total = totals[processedBy]
+                if not total then
+                    total = {0, 0}
+                    totals[processedBy] = total
+                end
+                total[1] = total[1] + count
+                total[2] = total[2] + cents
+            end
+            """;
+
+    private static final String PAGE_SCRIPT_TAIL = """
+            local result = {generation, ''}
+            -- a short page means the window ends here
+            if #members == pageSize then
+                result[2] = members[#members]
+            end
+            for processedBy, total in pairs(totals) do
+                table.insert(result, processedBy)
+                table.insert(result, total[1])
+                table.insert(result, total[2])
+            end
+            return result
+            """;
+
+    private static final String RAW_PAGE_SCRIPT = PAGE_SCRIPT_HEAD + """
+            for i = 1, #members do
+                local payment = cjson.decode(members[i])
+                add(payment.processedBy, 1, math.floor(tonumber(payment.amount) * 100 + 0.5))
+            end
+            """ + PAGE_SCRIPT_TAIL;
+
+    // buckets are counted when their minute starts inside the window, so once data is compacted a
+    // window that does not start and end on whole minutes is only approximate
+    private static final String ROLLUP_PAGE_SCRIPT = PAGE_SCRIPT_HEAD + """
+            if #members > 0 then
+                local fields = {}
+                for i = 1, #members do
+                    table.insert(fields, members[i] .. ':count')
+                    table.insert(fields, members[i] .. ':cents')
+                end
+                -- one HMGET for the whole page of buckets
+                local values = redis.call('HMGET', KEYS[3], unpack(fields))
+                for i = 1, #members do
+                    local processedBy = string.sub(members[i], string.find(members[i], ':', 1, true) + 1)
+                    add(processedBy, tonumber(values[i * 2 - 1] or '0'), tonumber(values[i * 2] or '0'))
+                end
+            end
+            """ + PAGE_SCRIPT_TAIL;
+
+    private static final String ANY_GENERATION = "";
 
     @Override
     public void purge() {
-        this.jedis.del(PAYMENTS);
+        this.jedis.del(PAYMENTS, PAYMENTS_ROLLUP, PAYMENTS_ROLLUP_TOTALS);
+        // a summary paging through the purged payments starts over
+        this.jedis.incr(PAYMENTS_GENERATION);
     }
 
     @Override
@@ -28,26 +137,74 @@ public record JedisPaymentsRepository(Jsonb jsonb, UnifiedJedis jedis) implement
         return null;
     }
 
+    @Override
+    public void saveAll(List<ProcessedPayment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        // a single multi-member ZADD for the whole batch
+        Map<String, Double> scoreMembers = new HashMap<>(payments.size() * 2);
+        for (ProcessedPayment payment : payments) {
+            scoreMembers.put(jsonb.toJson(payment), (double) payment.requestedAt().toEpochMilli());
+        }
+        jedis.zadd(PAYMENTS, scoreMembers);
+    }
+
     @Override
     public PaymentsSummary summary(Instant from, Instant to) {
-        var min = Optional.of(from).map(Instant::toEpochMilli).orElse(0l);
-        var max = Optional.of(to).map(Instant::toEpochMilli).orElse(-1l);
-
-        Map<String, PaymentSummary> summary = jedis.zrangeByScore(PAYMENTS, min, max)
-                .stream()
-                .map(json -> jsonb.fromJson(json, ProcessedPayment.class))
-                .collect(Collectors.groupingBy(
-                        payment -> payment.processedBy(),
-                        Collectors.collectingAndThen(
-                                Collectors.toList(),
-                                payments ->
-                                        new PaymentSummary(
-                                                Long.valueOf(payments.size()),
-                                                payments.stream().map(ProcessedPayment::amount).reduce(BigDecimal.ZERO, BigDecimal::add)
-                                        )
-                        )
-                ));
+        String min = Optional.ofNullable(from).map(Instant::toEpochMilli).map(String::valueOf).orElse("-inf");
+        String max = Optional.ofNullable(to).map(Instant::toEpochMilli).map(String::valueOf).orElse("+inf");
 
+        Map<String, long[]> totals;
+        do {
+            totals = new HashMap<>();
+        } while (!sumWindow(min, max, totals));
+
+        Map<String, PaymentSummary> summary = new HashMap<>();
+        totals.forEach((processedBy, total) ->
+                summary.put(processedBy, PaymentSummary.of(total[0], BigDecimal.valueOf(total[1], 2))));
         return PaymentsSummary.of(summary);
     }
+
+    // raw payments first, then the roll-up buckets, all at the same generation: otherwise a
+    // compaction in between could count a payment both raw and rolled up, or neither
+    private boolean sumWindow(String min, String max, Map<String, long[]> totals) {
+        String generation = sumPages(RAW_PAGE_SCRIPT, List.of(PAYMENTS, PAYMENTS_GENERATION),
+                min, max, ANY_GENERATION, totals);
+        return generation != null && sumPages(ROLLUP_PAGE_SCRIPT, List.of(PAYMENTS_ROLLUP, PAYMENTS_GENERATION, PAYMENTS_ROLLUP_TOTALS),
+                min, max, generation, totals) != null;
+    }
+
+    // returns the generation every page was read at, or null when it changed in between
+    private String sumPages(String script, List<String> keys, String min, String max, String generation, Map<String, long[]> totals) {
+        String cursor = "";
+        do {
+            var page = (List<?>) jedis.eval(script, keys, List.of(min, max, String.valueOf(pageSize), cursor, generation));
+            String pageGeneration = (String) page.get(0);
+            if (!ANY_GENERATION.equals(generation) && !generation.equals(pageGeneration)) {
+                return null;
+            }
+            generation = pageGeneration;
+            cursor = (String) page.get(1);
+            for (int i = 2; i < page.size(); i += 3) {
+                long[] total = totals.computeIfAbsent((String) page.get(i), key -> new long[2]);
+                total[0] += (Long) page.get(i + 1);
+                total[1] += (Long) page.get(i + 2);
+            }
+        } while (!cursor.isEmpty());
+        return generation;
+    }
+
+    @Override
+    public long compact(Instant before) {
+        long compacted = 0;
+        long batch;
+        do {
+            batch = (Long) jedis.eval(COMPACT_SCRIPT,
+                    List.of(PAYMENTS, PAYMENTS_ROLLUP, PAYMENTS_ROLLUP_TOTALS, PAYMENTS_GENERATION),
+                    List.of(String.valueOf(before.toEpochMilli()), String.valueOf(pageSize)));
+            compacted += batch;
+        } while (batch == pageSize);
+        return compacted;
+    }
 }
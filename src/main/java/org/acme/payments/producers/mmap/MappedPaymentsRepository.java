@@ -0,0 +1,341 @@
+package org.acme.payments.producers.mmap;
+
+import org.acme.payments.domain.PaymentSummary;
+import org.acme.payments.domain.PaymentsRepository;
+import org.acme.payments.domain.PaymentsSummary;
+import org.acme.payments.domain.ProcessedPayment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Single-host {@link PaymentsRepository} backed by an append-only, memory-mapped log file.
+ * <p>
+ * The file starts with a fixed header (magic, record count and the processor names table),
+ * followed by fixed-size records: requested-at epoch millis, processor id, amount in cents and
+ * the correlation id as two longs. A sparse in-memory index keeps the min/max timestamp of every
+ * block of records, so a summary only scans the blocks overlapping the window, reading the mapped
+ * buffer in place. The log survives restarts; purge truncates it logically.
+ * <p>
+ * The log holds at most {@code capacity} records. Every payment reserves its record when it is
+ * accepted, so once the log is full new payments are refused at intake instead of being charged
+ * and then failing to save. Usage is logged when the log is opened, when it passes
+ * {@value #NEARLY_FULL_PERCENT}% and when it is full.
+ */
+public class MappedPaymentsRepository implements PaymentsRepository, AutoCloseable {
+
+    private final static Logger logger = LoggerFactory.getLogger(MappedPaymentsRepository.class);
+
+    private static final long MAGIC = 0x5041594D454E5453L; // "PAYMENTS"
+
+    private static final int HEADER_SIZE = 4096;
+    private static final int COUNT_OFFSET = 8;
+    private static final int NAMES_COUNT_OFFSET = 16;
+    private static final int NAMES_OFFSET = 20;
+    private static final int NAME_SIZE = 32;
+    private static final int MAX_PROCESSORS = (HEADER_SIZE - NAMES_OFFSET) / NAME_SIZE;
+
+    private static final int RECORD_SIZE = 40;
+    private static final int TIMESTAMP_OFFSET = 0;
+    private static final int PROCESSOR_OFFSET = 8;
+    private static final int CENTS_OFFSET = 16;
+    private static final int CORRELATION_ID_MSB_OFFSET = 24;
+    private static final int CORRELATION_ID_LSB_OFFSET = 32;
+
+    private static final int BLOCK_SIZE = 1024;
+
+    // a single mapping is addressed with int offsets
+    static final long MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private static final int NEARLY_FULL_PERCENT = 90;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long capacity;
+    private final long nearlyFull;
+    private final Map<String, Integer> processorIds = new ConcurrentHashMap<>();
+    private volatile String[] processorNames = new String[0];
+    // per block of BLOCK_SIZE records: min and max timestamps, and the running max up to the block
+    private final long[] blockMin;
+    private final long[] blockMax;
+    private final long[] blockPrefixMax;
+    // published after the record and the index are written, so readers only see complete records
+    private volatile long count;
+    // records saved plus payments accepted and not saved yet; never below count
+    private final AtomicLong reserved = new AtomicLong();
+    // saves only append past the count a summary read, but a purge rewinds it: summaries hold the
+    // read lock for their whole scan, and a purge the write lock
+    private final ReadWriteLock purgeLock = new ReentrantReadWriteLock();
+
+    public MappedPaymentsRepository(Path path, long configuredCapacity) {
+        if (configuredCapacity < 1 || configuredCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("payments.log.capacity must be between 1 and " + MAX_CAPACITY
+                    + " records, was " + configuredCapacity);
+        }
+        try {
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long existingCapacity = Math.max(0, (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+            if (existingCapacity > MAX_CAPACITY) {
+                channel.close();
+                throw new IllegalStateException("The payments log " + path + " holds more than " + MAX_CAPACITY
+                        + " records, the most payments.log.capacity allows");
+            }
+            this.capacity = Math.max(configuredCapacity, existingCapacity);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the payments log " + path, e);
+        }
+        this.nearlyFull = capacity * NEARLY_FULL_PERCENT / 100;
+        int blocks = (int) ((capacity + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        this.blockMin = new long[blocks];
+        this.blockMax = new long[blocks];
+        this.blockPrefixMax = new long[blocks];
+        resetIndex();
+        recover();
+        logger.info("Payments log {} holds {} of {} records", path, count, capacity);
+    }
+
+    private void recover() {
+        if (buffer.getLong(0) != MAGIC) {
+            buffer.putLong(0, MAGIC);
+            buffer.putLong(COUNT_OFFSET, 0);
+            buffer.putInt(NAMES_COUNT_OFFSET, 0);
+            return;
+        }
+        int namesCount = buffer.getInt(NAMES_COUNT_OFFSET);
+        String[] names = new String[namesCount];
+        for (int id = 0; id < namesCount; id++) {
+            int offset = NAMES_OFFSET + id * NAME_SIZE;
+            byte[] name = new byte[buffer.get(offset)];
+            buffer.get(offset + 1, name);
+            names[id] = new String(name, StandardCharsets.UTF_8);
+            processorIds.put(names[id], id);
+        }
+        processorNames = names;
+        long recovered = Math.min(buffer.getLong(COUNT_OFFSET), capacity);
+        for (long record = 0; record < recovered; record++) {
+            index(record, buffer.getLong(offset(record) + TIMESTAMP_OFFSET));
+        }
+        count = recovered;
+        reserved.set(recovered);
+    }
+
+    @Override
+    public synchronized ProcessedPayment save(ProcessedPayment payment) {
+        long record = count;
+        if (record >= capacity) {
+            throw new IllegalStateException("The payments log is full (" + capacity + " records), "
+                    + "raise payments.log.capacity or purge it");
+        }
+        long timestamp = payment.requestedAt().toEpochMilli();
+        UUID correlationId = correlationId(payment.correlationId());
+        int offset = offset(record);
+        buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+        buffer.putInt(offset + PROCESSOR_OFFSET, processorId(payment.processedBy()));
+        buffer.putLong(offset + CENTS_OFFSET, payment.amount().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact());
+        buffer.putLong(offset + CORRELATION_ID_MSB_OFFSET, correlationId.getMostSignificantBits());
+        buffer.putLong(offset + CORRELATION_ID_LSB_OFFSET, correlationId.getLeastSignificantBits());
+        index(record, timestamp);
+        buffer.putLong(COUNT_OFFSET, record + 1);
+        count = record + 1;
+        // payments queued before a restart were never reserved
+        reserved.accumulateAndGet(count, Math::max);
+        if (count == nearlyFull) {
+            logger.warn("The payments log is {}% full ({} of {} records)", NEARLY_FULL_PERCENT, count, capacity);
+        } else if (count == capacity) {
+            logger.error("The payments log is full ({} records): new payments are refused until it is purged", capacity);
+        }
+        return payment;
+    }
+
+    @Override
+    public boolean reserve() {
+        long current;
+        do {
+            current = reserved.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!reserved.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    @Override
+    public void release() {
+        reserved.decrementAndGet();
+    }
+
+    @Override
+    public synchronized void saveAll(List<ProcessedPayment> payments) {
+        payments.forEach(this::save);
+    }
+
+    @Override
+    public PaymentsSummary summary(Instant from, Instant to) {
+        long min = Optional.ofNullable(from).map(Instant::toEpochMilli).orElse(Long.MIN_VALUE);
+        long max = Optional.ofNullable(to).map(Instant::toEpochMilli).orElse(Long.MAX_VALUE);
+        purgeLock.readLock().lock();
+        try {
+            return summary(min, max, count);
+        } finally {
+            purgeLock.readLock().unlock();
+        }
+    }
+
+    private PaymentsSummary summary(long min, long max, long records) {
+        if (records == 0) {
+            return PaymentsSummary.of(Map.of());
+        }
+        String[] names = processorNames;
+        long[] requests = new long[names.length];
+        long[] cents = new long[names.length];
+
+        int lastBlock = (int) ((records - 1) / BLOCK_SIZE);
+        for (int block = firstBlockReaching(min, lastBlock); block <= lastBlock; block++) {
+            if (blockMax[block] < min || blockMin[block] > max) {
+                continue;
+            }
+            long end = Math.min(records, (long) (block + 1) * BLOCK_SIZE);
+            for (long record = (long) block * BLOCK_SIZE; record < end; record++) {
+                int offset = offset(record);
+                long timestamp = buffer.getLong(offset + TIMESTAMP_OFFSET);
+                if (timestamp >= min && timestamp <= max) {
+                    int processor = buffer.getInt(offset + PROCESSOR_OFFSET);
+                    requests[processor]++;
+                    cents[processor] += buffer.getLong(offset + CENTS_OFFSET);
+                }
+            }
+        }
+
+        Map<String, PaymentSummary> summary = new HashMap<>();
+        for (int id = 0; id < names.length; id++) {
+            if (requests[id] > 0) {
+                summary.put(names[id], PaymentSummary.of(requests[id], BigDecimal.valueOf(cents[id], 2)));
+            }
+        }
+        return PaymentsSummary.of(summary);
+    }
+
+    @Override
+    public synchronized void purge() {
+        purgeLock.writeLock().lock();
+        try {
+            // payments accepted but not saved yet keep their reservation
+            reserved.addAndGet(-count);
+            buffer.putLong(COUNT_OFFSET, 0);
+            count = 0;
+            resetIndex();
+            buffer.force();
+        } finally {
+            purgeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long compact(Instant before) {
+        // records are already fixed-size and scanned in place, there is nothing to roll up
+        return 0;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long size() {
+        return count;
+    }
+
+    @Override
+    public synchronized void close() {
+        buffer.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // blockPrefixMax is non-decreasing, so the first block that may hold a timestamp >= min is found by binary search
+    private int firstBlockReaching(long min, int lastBlock) {
+        int low = 0;
+        int high = lastBlock + 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (blockPrefixMax[middle] < min) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void index(long record, long timestamp) {
+        int block = (int) (record / BLOCK_SIZE);
+        blockMin[block] = Math.min(blockMin[block], timestamp);
+        blockMax[block] = Math.max(blockMax[block], timestamp);
+        long previous = block == 0 ? Long.MIN_VALUE : blockPrefixMax[block - 1];
+        blockPrefixMax[block] = Math.max(previous, blockMax[block]);
+    }
+
+    private void resetIndex() {
+        Arrays.fill(blockMin, Long.MAX_VALUE);
+        Arrays.fill(blockMax, Long.MIN_VALUE);
+        Arrays.fill(blockPrefixMax, Long.MIN_VALUE);
+    }
+
+    private int processorId(String name) {
+        Integer id = processorIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        String[] names = processorNames;
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        if (names.length >= MAX_PROCESSORS || encoded.length >= NAME_SIZE) {
+            throw new IllegalStateException("Cannot register processor '" + name + "' in the payments log");
+        }
+        int newId = names.length;
+        int offset = NAMES_OFFSET + newId * NAME_SIZE;
+        buffer.put(offset, (byte) encoded.length);
+        buffer.put(offset + 1, encoded);
+        buffer.putInt(NAMES_COUNT_OFFSET, newId + 1);
+        String[] newNames = Arrays.copyOf(names, newId + 1);
+        newNames[newId] = name;
+        processorNames = newNames;
+        processorIds.put(name, newId);
+        return newId;
+    }
+
+    private static int offset(long record) {
+        return (int) (HEADER_SIZE + record * RECORD_SIZE);
+    }
+
+    private static UUID correlationId(String correlationId) {
+        try {
+            return UUID.fromString(correlationId);
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(correlationId.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.acme.payments.producers.transport;
+
+import org.acme.payments.domain.PaymentProcessorTransport;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+
+public record JdkPaymentProcessorTransport(HttpClient httpClient, Duration timeout) implements PaymentProcessorTransport {
+
+    @Override
+    public CompletionStage<Integer> post(URI target, byte[] jsonBody) {
+        return httpClient.sendAsync(HttpRequest.newBuilder(target)
+                        .header("Content-Type", "application/json")
+                        .timeout(timeout)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBody))
+                        .build(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+    }
+
+    @Override
+    public CompletionStage<Integer> get(URI target) {
+        return httpClient.sendAsync(HttpRequest.newBuilder(target)
+                        .timeout(timeout)
+                        .GET()
+                        .build(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+    }
+}
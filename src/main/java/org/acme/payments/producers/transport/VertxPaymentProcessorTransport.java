@@ -0,0 +1,49 @@
+package org.acme.payments.producers.transport;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import org.acme.payments.domain.PaymentProcessorTransport;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Transport backed by the Vert.x HTTP client: requests are written and completed on the
+ * event loop, so no thread is held while waiting for the processor.
+ */
+public record VertxPaymentProcessorTransport(HttpClient httpClient, Duration timeout) implements PaymentProcessorTransport {
+
+    @Override
+    public CompletionStage<Integer> post(URI target, byte[] jsonBody) {
+        return httpClient.request(requestOptions(HttpMethod.POST, target)
+                        .putHeader("Content-Type", "application/json"))
+                .compose(request -> request.send(Buffer.buffer(jsonBody)))
+                .compose(VertxPaymentProcessorTransport::statusCode)
+                .toCompletionStage();
+    }
+
+    @Override
+    public CompletionStage<Integer> get(URI target) {
+        return httpClient.request(requestOptions(HttpMethod.GET, target))
+                .compose(request -> request.send())
+                .compose(VertxPaymentProcessorTransport::statusCode)
+                .toCompletionStage();
+    }
+
+    private RequestOptions requestOptions(HttpMethod method, URI target) {
+        return new RequestOptions()
+                .setMethod(method)
+                .setAbsoluteURI(target.toString())
+                .setTimeout(timeout.toMillis());
+    }
+
+    private static Future<Integer> statusCode(HttpClientResponse response) {
+        // the body must be drained before the connection goes back to the pool
+        return response.body().map(ignored -> response.statusCode());
+    }
+}
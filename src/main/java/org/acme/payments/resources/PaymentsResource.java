@@ -13,6 +13,7 @@ import org.acme.payments.domain.PaymentRequest;
 import org.acme.payments.domain.PaymentsService;
 
 import java.time.Instant;
+import java.util.concurrent.RejectedExecutionException;
 
 @Path("/")
 @Produces(MediaType.APPLICATION_JSON)
@@ -28,7 +29,11 @@ public class PaymentsResource {
     @POST
     @Path("/payments")
     public Response pay(PaymentRequest paymentRequest) {
-        paymentsService.accept(paymentRequest);
+        try {
+            paymentsService.accept(paymentRequest);
+        } catch (RejectedExecutionException e) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
         return Response.status(Response.Status.ACCEPTED).build();
     }
 
@@ -0,0 +1,107 @@
+package org.acme.payments.resources;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import org.acme.payments.domain.PaymentRequest;
+import org.acme.payments.domain.PaymentsService;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Low-level counterpart of {@link PaymentsResource}, registered straight on the Vert.x router when
+ * {@code payments.http.mode=event-loop}: payments are accepted on the event loop without any
+ * thread hop, and only the Redis work behind summary and purge is offloaded to a worker.
+ */
+@ApplicationScoped
+public class PaymentsRoutes {
+
+    private final String mode;
+    private final PaymentsService paymentsService;
+    private final Jsonb jsonb;
+
+    @Inject
+    public PaymentsRoutes(@ConfigProperty(name = "payments.http.mode", defaultValue = "jaxrs")
+                          String mode,
+                          PaymentsService paymentsService,
+                          Jsonb jsonb) {
+        this.mode = mode;
+        this.paymentsService = paymentsService;
+        this.jsonb = jsonb;
+    }
+
+    void registerRoutes(@Observes Router router) {
+        if (!"event-loop".equals(mode)) {
+            return;
+        }
+        router.post("/payments").handler(this::pay);
+        router.post("/purge-payments").handler(this::purge);
+        router.get("/payments-summary").handler(this::summary);
+    }
+
+    private void pay(RoutingContext ctx) {
+        Buffer body = ctx.body().buffer();
+        if (body != null) {
+            // the body was already read by a body handler
+            accept(ctx, body);
+            return;
+        }
+        ctx.request().body()
+                .onSuccess(buffer -> accept(ctx, buffer))
+                .onFailure(ctx::fail);
+    }
+
+    private void accept(RoutingContext ctx, Buffer body) {
+        PaymentRequest paymentRequest;
+        try {
+            paymentRequest = jsonb.fromJson(body.toString(), PaymentRequest.class);
+        } catch (RuntimeException e) {
+            ctx.response().setStatusCode(400).end();
+            return;
+        }
+        try {
+            paymentsService.accept(paymentRequest);
+        } catch (RejectedExecutionException e) {
+            ctx.response().setStatusCode(503).end();
+            return;
+        }
+        ctx.response().setStatusCode(202).end();
+    }
+
+    private void purge(RoutingContext ctx) {
+        ctx.vertx().<Void>executeBlocking(() -> {
+                    paymentsService.purge();
+                    return null;
+                }, false)
+                .onSuccess(ignored -> ctx.response().setStatusCode(204).end())
+                .onFailure(ctx::fail);
+    }
+
+    private void summary(RoutingContext ctx) {
+        Instant from;
+        Instant to;
+        try {
+            from = parseInstant(ctx.queryParams().get("from"));
+            to = parseInstant(ctx.queryParams().get("to"));
+        } catch (RuntimeException e) {
+            ctx.response().setStatusCode(400).end();
+            return;
+        }
+        ctx.vertx().executeBlocking(() -> jsonb.toJson(paymentsService.summary(from, to)), false)
+                .onSuccess(json -> ctx.response()
+                        .putHeader("Content-Type", "application/json")
+                        .end(json))
+                .onFailure(ctx::fail);
+    }
+
+    private static Instant parseInstant(String value) {
+        return Optional.ofNullable(value).map(Instant::parse).orElse(null);
+    }
+}
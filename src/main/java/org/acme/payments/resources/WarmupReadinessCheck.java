@@ -0,0 +1,25 @@
+package org.acme.payments.resources;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.acme.payments.producers.StartupWarmup;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+@Readiness
+@ApplicationScoped
+public class WarmupReadinessCheck implements HealthCheck {
+
+    private final StartupWarmup startupWarmup;
+
+    public WarmupReadinessCheck(StartupWarmup startupWarmup) {
+        this.startupWarmup = startupWarmup;
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        return HealthCheckResponse.named("warmup")
+                .status(startupWarmup.isReady())
+                .build();
+    }
+}
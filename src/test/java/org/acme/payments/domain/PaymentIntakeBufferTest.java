@@ -0,0 +1,78 @@
+package org.acme.payments.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentIntakeBufferTest {
+
+    private static PaymentIntakeBuffer newBuffer(int ringCapacity, int overflowCapacity) {
+        return new PaymentIntakeBuffer(new PaymentRingBuffer(ringCapacity, WaitStrategy.busySpin()), overflowCapacity);
+    }
+
+    private static PaymentRequest request(int i) {
+        return new PaymentRequest(new UUID(0, i).toString(), BigDecimal.valueOf(i, 2));
+    }
+
+    private static int drain(PaymentIntakeBuffer buffer, int maxBatch, List<String> forwarded) {
+        return buffer.drainWaiting(maxBatch,
+                (msb, lsb, amountInCents, receivedAtMillis) -> forwarded.add(new UUID(msb, lsb).toString()),
+                paymentRequest -> forwarded.add(paymentRequest.correlationId()),
+                () -> true);
+    }
+
+    @Test
+    void shouldRejectOnlyWhenTheRingAndTheOverflowAreFull() {
+        var buffer = newBuffer(4, 2);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(buffer.offer(request(i)));
+        }
+
+        assertFalse(buffer.offer(request(6)));
+    }
+
+    @Test
+    void shouldForwardTheRingBeforeTheOverflow() {
+        var buffer = newBuffer(4, 8);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(request(i)));
+        }
+
+        List<String> forwarded = new ArrayList<>();
+        assertEquals(3, drain(buffer, 3, forwarded));
+        assertEquals(3, drain(buffer, 3, forwarded));
+        assertEquals(3, drain(buffer, 3, forwarded));
+        assertEquals(1, drain(buffer, 3, forwarded));
+
+        assertEquals(IntStream.range(0, 10).mapToObj(i -> request(i).correlationId()).toList(), forwarded);
+    }
+
+    @Test
+    void shouldForwardTheOverflowWithoutWaitingForTheRing() {
+        var buffer = newBuffer(4, 8);
+        // not a lowercase UUID, so it can only go through the overflow
+        var overflowed = new PaymentRequest("not-a-uuid", BigDecimal.ONE);
+        assertTrue(buffer.offer(overflowed));
+
+        List<String> forwarded = new ArrayList<>();
+        assertEquals(1, drain(buffer, 4, forwarded));
+        assertEquals(List.of("not-a-uuid"), forwarded);
+    }
+
+    @Test
+    void shouldStopWaitingWhenToldTo() {
+        var buffer = newBuffer(4, 8);
+
+        assertEquals(0, buffer.drainWaiting(4, (msb, lsb, amountInCents, receivedAtMillis) -> {
+        }, paymentRequest -> {
+        }, () -> false));
+    }
+}
@@ -0,0 +1,174 @@
+package org.acme.payments.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentRingBufferTest {
+
+    record Entry(String correlationId, String amount, Instant receivedAt) {
+    }
+
+    private static PaymentRingBuffer newBuffer(int capacity) {
+        return new PaymentRingBuffer(capacity, WaitStrategy.busySpin());
+    }
+
+    private static List<Entry> drainAll(PaymentRingBuffer buffer) {
+        List<Entry> entries = new ArrayList<>();
+        buffer.drain(Integer.MAX_VALUE, (msb, lsb, amountInCents, receivedAtMillis) -> entries.add(new Entry(
+                new UUID(msb, lsb).toString(),
+                PaymentRingBuffer.amount(amountInCents),
+                PaymentRingBuffer.receivedAt(receivedAtMillis))));
+        return entries;
+    }
+
+    private static PaymentRequest request(int i) {
+        return new PaymentRequest(new UUID(0, i).toString(), BigDecimal.valueOf(i, 2));
+    }
+
+    @Test
+    void shouldRoundCapacityUpToAPowerOfTwo() {
+        assertEquals(16, newBuffer(10).capacity());
+        assertEquals(16, newBuffer(16).capacity());
+        assertEquals(2, newBuffer(2).capacity());
+        assertEquals(2, newBuffer(1).capacity());
+    }
+
+    @Test
+    void shouldRoundTripCorrelationIdAmountAndReceivedAt() {
+        var buffer = newBuffer(4);
+        var correlationId = "4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3";
+        var receivedAt = Instant.parse("2025-07-15T12:34:56.789Z");
+
+        assertTrue(buffer.offer(new PaymentRequest(correlationId, new BigDecimal("19.90"), receivedAt)));
+        assertTrue(buffer.offer(new PaymentRequest("ffffffff-ffff-ffff-ffff-ffffffffffff", new BigDecimal("0.01"))));
+
+        var entries = drainAll(buffer);
+        assertEquals(List.of(
+                new Entry(correlationId, "19.90", receivedAt),
+                new Entry("ffffffff-ffff-ffff-ffff-ffffffffffff", "0.01", null)), entries);
+    }
+
+    @Test
+    void shouldRejectWhatCannotBeStoredAsPrimitives() {
+        var buffer = newBuffer(4);
+
+        // re-encoding would change the id sent to the processor
+        assertFalse(buffer.offer(new PaymentRequest("4A7901B8-7D26-4D9D-AA19-4DC1C7CF60B3", BigDecimal.ONE)));
+        assertFalse(buffer.offer(new PaymentRequest("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b\u0663", BigDecimal.ONE)));
+        assertFalse(buffer.offer(new PaymentRequest("not-a-uuid", BigDecimal.ONE)));
+        assertFalse(buffer.offer(new PaymentRequest(null, BigDecimal.ONE)));
+        assertFalse(buffer.offer(new PaymentRequest("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3", new BigDecimal("1.001"))));
+        assertFalse(buffer.offer(new PaymentRequest("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3", null)));
+
+        assertTrue(drainAll(buffer).isEmpty());
+    }
+
+    @Test
+    void shouldRejectOffersWhenFull() {
+        var buffer = newBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(request(i)));
+        }
+
+        assertFalse(buffer.offer(request(4)));
+
+        assertEquals(1, buffer.drain(1, (msb, lsb, amountInCents, receivedAtMillis) -> assertEquals(0, lsb)));
+        assertTrue(buffer.offer(request(4)));
+        assertFalse(buffer.offer(request(5)));
+        assertEquals(List.of(1L, 2L, 3L, 4L), drainAll(buffer).stream()
+                .map(entry -> UUID.fromString(entry.correlationId()).getLeastSignificantBits())
+                .toList());
+    }
+
+    @Test
+    void shouldKeepTheOrderAcrossWrapArounds() {
+        var buffer = newBuffer(4);
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(request(next + i)));
+            }
+            var entries = drainAll(buffer);
+            assertEquals(3, entries.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(request(next + i).correlationId(), entries.get(i).correlationId());
+                assertEquals(request(next + i).amount().toPlainString(), entries.get(i).amount());
+            }
+            next += 3;
+        }
+    }
+
+    @Test
+    void shouldStopWaitingWhenToldTo() {
+        var buffer = newBuffer(4);
+
+        assertEquals(0, buffer.drainWaiting(4, (msb, lsb, amountInCents, receivedAtMillis) -> {
+        }, () -> false));
+    }
+
+    @Test
+    void shouldDeliverEveryEntryOnceWithManyProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        var buffer = newBuffer(256);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        var start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        var paymentRequest = new PaymentRequest(new UUID(producer, i).toString(), BigDecimal.ONE);
+                        while (!buffer.offer(paymentRequest)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            long[] lastSeen = new long[producers];
+            Arrays.fill(lastSeen, -1);
+            Set<UUID> received = new HashSet<>();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (received.size() < producers * perProducer && System.nanoTime() < deadline) {
+                buffer.drain(64, (msb, lsb, amountInCents, receivedAtMillis) -> {
+                    assertTrue(received.add(new UUID(msb, lsb)));
+                    assertEquals(100, amountInCents);
+                    // entries of a single producer come out in the order it offered them
+                    assertEquals(lastSeen[(int) msb] + 1, lsb);
+                    lastSeen[(int) msb] = lsb;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.SECONDS);
+            }
+
+            assertEquals(producers * perProducer, received.size());
+            assertTrue(drainAll(buffer).isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
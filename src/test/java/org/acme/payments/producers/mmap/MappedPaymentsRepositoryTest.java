@@ -0,0 +1,202 @@
+package org.acme.payments.producers.mmap;
+
+import org.acme.payments.domain.PaymentSummary;
+import org.acme.payments.domain.PaymentsSummary;
+import org.acme.payments.domain.ProcessedPayment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedPaymentsRepositoryTest {
+
+    private static final Instant START = Instant.parse("2025-07-15T12:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private static ProcessedPayment payment(String processedBy, String amount, Instant requestedAt) {
+        return new ProcessedPayment(UUID.randomUUID().toString(), processedBy, new BigDecimal(amount), requestedAt);
+    }
+
+    private static PaymentSummary summary(long totalRequests, String totalAmount) {
+        return PaymentSummary.of(totalRequests, new BigDecimal(totalAmount));
+    }
+
+    private MappedPaymentsRepository open(long capacity) {
+        return new MappedPaymentsRepository(directory.resolve("payments.log"), capacity);
+    }
+
+    @Test
+    void shouldSummarizeEverythingWithoutAWindow() {
+        try (var repository = open(100)) {
+            repository.save(payment("default", "19.90", START));
+            repository.save(payment("default", "0.10", START.plusSeconds(1)));
+            repository.save(payment("fallback", "5.00", START.plusSeconds(2)));
+
+            var summary = repository.summary(null, null);
+
+            assertEquals(summary(2, "20.00"), summary.defaultPaymentSummary());
+            assertEquals(summary(1, "5.00"), summary.fallbackPaymentSummary());
+        }
+    }
+
+    @Test
+    void shouldOnlySummarizeTheWindow() {
+        try (var repository = open(10_000)) {
+            List<ProcessedPayment> payments = new ArrayList<>();
+            // several index blocks, one payment per second
+            for (int i = 0; i < 5_000; i++) {
+                payments.add(payment(i % 2 == 0 ? "default" : "fallback", "1.00", START.plusSeconds(i)));
+            }
+            repository.saveAll(payments);
+
+            // both bounds are inclusive
+            var summary = repository.summary(START.plusSeconds(1000), START.plusSeconds(2999));
+
+            assertEquals(summary(1000, "1000.00"), summary.defaultPaymentSummary());
+            assertEquals(summary(1000, "1000.00"), summary.fallbackPaymentSummary());
+            assertEquals(summary(2500, "2500.00"), repository.summary(null, START.plusSeconds(4999)).defaultPaymentSummary());
+            assertEquals(PaymentsSummary.ZERO, repository.summary(START.plusSeconds(5000), null));
+            assertEquals(PaymentsSummary.ZERO, repository.summary(null, START.minusMillis(1)));
+        }
+    }
+
+    @Test
+    void shouldFindPaymentsSavedOutOfOrder() {
+        try (var repository = open(5_000)) {
+            for (int i = 0; i < 3_000; i++) {
+                repository.save(payment("default", "1.00", START.plusSeconds(i)));
+            }
+            // a late payment lands in a block whose other timestamps are all newer
+            repository.save(payment("fallback", "7.00", START.plusSeconds(10)));
+
+            var summary = repository.summary(START.plusSeconds(10), START.plusSeconds(10));
+
+            assertEquals(summary(1, "1.00"), summary.defaultPaymentSummary());
+            assertEquals(summary(1, "7.00"), summary.fallbackPaymentSummary());
+        }
+    }
+
+    @Test
+    void shouldRecoverThePaymentsAfterReopening() {
+        try (var repository = open(100)) {
+            repository.save(payment("default", "10.00", START));
+            repository.save(payment("fallback", "2.50", START.plusSeconds(1)));
+        }
+
+        try (var repository = open(100)) {
+            assertEquals(2, repository.size());
+            repository.save(payment("default", "1.00", START.plusSeconds(2)));
+
+            var summary = repository.summary(null, null);
+
+            assertEquals(summary(2, "11.00"), summary.defaultPaymentSummary());
+            assertEquals(summary(1, "2.50"), summary.fallbackPaymentSummary());
+            assertEquals(summary(1, "10.00"), repository.summary(START, START).defaultPaymentSummary());
+        }
+    }
+
+    @Test
+    void shouldKeepTheFileCapacityWhenReopenedWithASmallerOne() {
+        try (var repository = open(100)) {
+            repository.save(payment("default", "1.00", START));
+        }
+
+        try (var repository = open(10)) {
+            assertEquals(100, repository.capacity());
+            assertEquals(1, repository.size());
+        }
+    }
+
+    @Test
+    void shouldPurgeEverythingAndStayPurgedAfterReopening() {
+        try (var repository = open(100)) {
+            repository.save(payment("default", "10.00", START));
+            repository.save(payment("fallback", "2.50", START));
+
+            repository.purge();
+
+            assertEquals(0, repository.size());
+            assertEquals(PaymentsSummary.ZERO, repository.summary(null, null));
+            repository.save(payment("fallback", "1.00", START.plusSeconds(60)));
+            assertEquals(summary(1, "1.00"), repository.summary(null, null).fallbackPaymentSummary());
+            repository.purge();
+        }
+
+        try (var repository = open(100)) {
+            assertEquals(0, repository.size());
+            assertEquals(PaymentsSummary.ZERO, repository.summary(null, null));
+        }
+    }
+
+    @Test
+    void shouldRefusePaymentsOnceFull() {
+        try (var repository = open(2)) {
+            repository.save(payment("default", "1.00", START));
+            repository.save(payment("default", "1.00", START));
+
+            assertThrows(IllegalStateException.class, () -> repository.save(payment("default", "1.00", START)));
+            assertEquals(summary(2, "2.00"), repository.summary(null, null).defaultPaymentSummary());
+        }
+    }
+
+    @Test
+    void shouldRefuseReservationsOnceEveryRecordIsTaken() {
+        try (var repository = open(3)) {
+            repository.save(payment("default", "1.00", START));
+            assertTrue(repository.reserve());
+            assertTrue(repository.reserve());
+
+            assertFalse(repository.reserve());
+            repository.release();
+            assertTrue(repository.reserve());
+            assertFalse(repository.reserve());
+
+            repository.save(payment("default", "1.00", START));
+            // one payment still accepted and not saved keeps its record across the purge
+            repository.purge();
+            assertTrue(repository.reserve());
+            assertTrue(repository.reserve());
+            assertFalse(repository.reserve());
+        }
+    }
+
+    @Test
+    void shouldCountRecoveredPaymentsAsReserved() {
+        try (var repository = open(2)) {
+            repository.save(payment("default", "1.00", START));
+        }
+
+        try (var repository = open(2)) {
+            assertTrue(repository.reserve());
+            assertFalse(repository.reserve());
+        }
+    }
+
+    @Test
+    void shouldRejectCapacitiesItCannotMap() {
+        var tooLarge = assertThrows(IllegalArgumentException.class, () -> open(MappedPaymentsRepository.MAX_CAPACITY + 1));
+        assertTrue(tooLarge.getMessage().contains("payments.log.capacity"));
+        assertThrows(IllegalArgumentException.class, () -> open(0));
+    }
+
+    @Test
+    void shouldKeepCorrelationIdsThatAreNotUUIDs() {
+        try (var repository = open(10)) {
+            repository.save(new ProcessedPayment("not-a-uuid", "default", BigDecimal.ONE, START));
+
+            assertEquals(summary(1, "1.00"), repository.summary(null, null).defaultPaymentSummary());
+        }
+    }
+}